@@ -0,0 +1,263 @@
+package com.ottbrowser;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.libtorrent4j.AlertListener;
+import org.libtorrent4j.FileStorage;
+import org.libtorrent4j.TorrentHandle;
+import org.libtorrent4j.TorrentInfo;
+import org.libtorrent4j.alerts.Alert;
+import org.libtorrent4j.alerts.AlertType;
+import org.libtorrent4j.alerts.MetadataReceivedAlert;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-torrent file index, built once when the metadata arrives.
+ *
+ * Complete-series and discography torrents carry thousands of files. Instead of
+ * re-scanning the file storage (toLowerCase().endsWith(...)) on every status poll
+ * and every unresolved stream request, each file is classified once (kind, size rank,
+ * season/episode parsed from the name) and the best video index is precomputed.
+ * The JS side pages through the list with query() instead of receiving it in one go.
+ */
+public class FileIndex implements AlertListener {
+    private static final String TAG = "FileIndex";
+
+    private static final int MAX_INDEXES = 16;
+    private static final int DEFAULT_PAGE = 100;
+
+    public static final String KIND_VIDEO = "video";
+    public static final String KIND_SUBTITLE = "subtitle";
+    public static final String KIND_AUDIO = "audio";
+    public static final String KIND_OTHER = "other";
+
+    // S01E02 / s1.e2 / 1x02
+    private static final Pattern SEASON_EPISODE = Pattern.compile("(?i)s(\\d{1,2})[ ._-]?e(\\d{1,3})");
+    private static final Pattern CROSS_EPISODE = Pattern.compile("(?i)(?<![0-9a-z])(\\d{1,2})x(\\d{2,3})(?![0-9a-z])");
+
+    public static class FileEntry {
+        int index;
+        String name;
+        long size;
+        String kind;
+        int sizeRank; // 0 = largest file in the torrent
+        int season = -1;
+        int episode = -1;
+    }
+
+    public static class Index {
+        FileEntry[] files;
+        int bestVideo = -1; // Largest video file, -1 if none
+        int videoCount;
+    }
+
+    // Expert: access-ordered = LRU, eldest index dropped first
+    private final LinkedHashMap<String, Index> indexes = new LinkedHashMap<String, Index>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Index> eldest) {
+            return size() > MAX_INDEXES;
+        }
+    };
+
+    private long built = 0;
+    private long hits = 0;
+
+    @Override
+    public int[] types() {
+        return new int[] { AlertType.METADATA_RECEIVED.swig() };
+    }
+
+    @Override
+    public void alert(Alert<?> alert) {
+        if (!(alert instanceof MetadataReceivedAlert))
+            return;
+        try {
+            get(((MetadataReceivedAlert) alert).handle());
+        } catch (Exception e) {
+            Log.e(TAG, "Alert Error", e);
+        }
+    }
+
+    /**
+     * Cached index for the torrent, built on first use (torrents revived from resume
+     * data never fire metadata_received). Returns null while metadata is missing.
+     */
+    public Index get(TorrentHandle th) {
+        String hash = th.swig().info_hash().to_hex().toLowerCase();
+        synchronized (this) {
+            Index cached = indexes.get(hash);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+        }
+        TorrentInfo ti = th.torrentFile();
+        if (ti == null)
+            return null;
+
+        Index index = build(ti.files());
+        synchronized (this) {
+            Index raced = indexes.get(hash);
+            if (raced != null)
+                return raced;
+            indexes.put(hash, index);
+            built++;
+        }
+        Log.d(TAG, "Indexed " + index.files.length + " files of " + hash + ", best video " + index.bestVideo);
+        return index;
+    }
+
+    public int bestVideo(TorrentHandle th) {
+        Index index = get(th);
+        return index != null ? index.bestVideo : -1;
+    }
+
+    private static Index build(FileStorage fs) {
+        int numFiles = fs.numFiles();
+        Index index = new Index();
+        index.files = new FileEntry[numFiles];
+
+        long maxVideo = -1;
+        for (int j = 0; j < numFiles; j++) {
+            FileEntry f = new FileEntry();
+            f.index = j;
+            f.name = fs.fileName(j);
+            f.size = fs.fileSize(j);
+            String lower = f.name.toLowerCase();
+            f.kind = kindOf(lower);
+            parseEpisode(lower, f);
+            if (KIND_VIDEO.equals(f.kind)) {
+                index.videoCount++;
+                if (f.size > maxVideo) {
+                    maxVideo = f.size;
+                    index.bestVideo = j;
+                }
+            }
+            index.files[j] = f;
+        }
+
+        FileEntry[] bySize = index.files.clone();
+        Arrays.sort(bySize, new Comparator<FileEntry>() {
+            @Override
+            public int compare(FileEntry a, FileEntry b) {
+                return Long.compare(b.size, a.size);
+            }
+        });
+        for (int r = 0; r < bySize.length; r++)
+            bySize[r].sizeRank = r;
+        return index;
+    }
+
+    private static String kindOf(String lowerName) {
+        int dot = lowerName.lastIndexOf('.');
+        String ext = dot >= 0 ? lowerName.substring(dot + 1) : "";
+        switch (ext) {
+            case "mp4":
+            case "mkv":
+            case "avi":
+            case "webm":
+                return KIND_VIDEO;
+            case "srt":
+            case "ass":
+            case "ssa":
+            case "vtt":
+            case "sub":
+                return KIND_SUBTITLE;
+            case "mp3":
+            case "flac":
+            case "m4a":
+            case "aac":
+            case "ogg":
+            case "wav":
+                return KIND_AUDIO;
+            default:
+                return KIND_OTHER;
+        }
+    }
+
+    private static void parseEpisode(String lowerName, FileEntry f) {
+        Matcher m = SEASON_EPISODE.matcher(lowerName);
+        if (!m.find()) {
+            m = CROSS_EPISODE.matcher(lowerName);
+            if (!m.find())
+                return;
+        }
+        f.season = Integer.parseInt(m.group(1));
+        f.episode = Integer.parseInt(m.group(2));
+    }
+
+    // JS sends { season: null } for "any season"; getInt on null throws
+    private static boolean has(ReadableMap query, String key) {
+        return query != null && query.hasKey(key) && !query.isNull(key);
+    }
+
+    /**
+     * One page of the file list. Query keys (all optional): videosOnly (bool),
+     * season (int), offset (int), limit (int, default 100). Resolves to
+     * { total, offset, bestVideo, files: [...] } where total counts the matches.
+     */
+    public WritableMap query(TorrentHandle th, ReadableMap query) {
+        boolean videosOnly = has(query, "videosOnly") && query.getBoolean("videosOnly");
+        int season = has(query, "season") ? query.getInt("season") : -1;
+        int offset = has(query, "offset") ? Math.max(0, query.getInt("offset")) : 0;
+        int limit = has(query, "limit") ? Math.max(0, query.getInt("limit")) : DEFAULT_PAGE;
+
+        WritableMap page = Arguments.createMap();
+        WritableArray files = Arguments.createArray();
+        Index index = get(th);
+        int total = 0;
+        if (index != null) {
+            for (FileEntry f : index.files) {
+                if (videosOnly && !KIND_VIDEO.equals(f.kind))
+                    continue;
+                if (season >= 0 && f.season != season)
+                    continue;
+                if (total >= offset && total < offset + limit)
+                    files.pushMap(toMap(f));
+                total++;
+            }
+        }
+        page.putInt("total", total);
+        page.putInt("offset", offset);
+        page.putInt("bestVideo", index != null ? index.bestVideo : -1);
+        page.putArray("files", files);
+        return page;
+    }
+
+    static WritableMap toMap(FileEntry f) {
+        WritableMap map = Arguments.createMap();
+        map.putInt("index", f.index);
+        map.putString("name", f.name);
+        map.putDouble("size", (double) f.size);
+        map.putString("kind", f.kind);
+        map.putInt("sizeRank", f.sizeRank);
+        if (f.episode >= 0) {
+            map.putInt("season", f.season);
+            map.putInt("episode", f.episode);
+        }
+        return map;
+    }
+
+    public synchronized void clear() {
+        indexes.clear();
+    }
+
+    public synchronized WritableMap toMetrics() {
+        WritableMap map = Arguments.createMap();
+        map.putInt("cached", indexes.size());
+        map.putDouble("built", (double) built);
+        map.putDouble("hits", (double) hits);
+        return map;
+    }
+}
@@ -0,0 +1,210 @@
+package com.ottbrowser;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.libtorrent4j.AddTorrentParams;
+import org.libtorrent4j.AlertListener;
+import org.libtorrent4j.Priority;
+import org.libtorrent4j.SessionManager;
+import org.libtorrent4j.TorrentFlags;
+import org.libtorrent4j.TorrentHandle;
+import org.libtorrent4j.TorrentInfo;
+import org.libtorrent4j.alerts.Alert;
+import org.libtorrent4j.alerts.AlertType;
+import org.libtorrent4j.alerts.MetadataReceivedAlert;
+import org.libtorrent4j.swig.error_code;
+import org.libtorrent4j.swig.torrent_handle;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Speculative metadata warm-up for titles the user is likely to open.
+ *
+ * Speculative torrents are added non-auto-managed (so activeDownloads(1) can't queue
+ * them behind the foreground stream) with a small connection cap. As soon as the
+ * metadata arrives they are paused with every file at priority 0. An LRU keeps at
+ * most MAX_SPECULATIVE of them; pressing play promotes the entry instead of adding
+ * the magnet again, so playback starts straight at piece fetching.
+ */
+public class MetadataPrefetcher implements AlertListener {
+    private static final String TAG = "MetadataPrefetcher";
+
+    private static final int MAX_SPECULATIVE = 3;
+    private static final int SPECULATIVE_CONNECTIONS = 8;
+
+    private static class Entry {
+        final TorrentHandle th;
+        final long addedAt;
+        long metadataMs = -1;
+
+        Entry(TorrentHandle th) {
+            this.th = th;
+            this.addedAt = System.currentTimeMillis();
+        }
+    }
+
+    private final SessionManager session;
+    private final File downloadDir;
+    // Expert: access-ordered = LRU, eldest gets evicted first
+    private final LinkedHashMap<String, Entry> speculative = new LinkedHashMap<>(8, 0.75f, true);
+
+    private long added = 0;
+    private long evicted = 0;
+    private long promoted = 0;
+    private long metadataTotalMs = 0;
+    private long metadataCount = 0;
+
+    public MetadataPrefetcher(SessionManager session, File downloadDir) {
+        this.session = session;
+        this.downloadDir = downloadDir;
+    }
+
+    @Override
+    public int[] types() {
+        return new int[] { AlertType.METADATA_RECEIVED.swig() };
+    }
+
+    @Override
+    public void alert(Alert<?> alert) {
+        if (!(alert instanceof MetadataReceivedAlert))
+            return;
+        try {
+            TorrentHandle th = ((MetadataReceivedAlert) alert).handle();
+            String hash = th.swig().info_hash().to_hex().toLowerCase();
+            synchronized (this) {
+                Entry entry = speculative.get(hash);
+                if (entry == null)
+                    return; // Foreground torrent, not ours
+                entry.metadataMs = System.currentTimeMillis() - entry.addedAt;
+                metadataTotalMs += entry.metadataMs;
+                metadataCount++;
+            }
+            park(th);
+            Log.d(TAG, "Metadata warmed: " + hash);
+        } catch (Exception e) {
+            Log.e(TAG, "Alert Error", e);
+        }
+    }
+
+    // Metadata-only: nothing wanted, nothing running
+    private void park(TorrentHandle th) {
+        TorrentInfo ti = th.torrentFile();
+        if (ti != null) {
+            Priority[] none = new Priority[ti.files().numFiles()];
+            Arrays.fill(none, Priority.IGNORE);
+            th.prioritizeFiles(none);
+        }
+        th.pause();
+    }
+
+    /**
+     * Adds up to budget magnets (never more than MAX_SPECULATIVE live) in metadata-only
+     * mode. Returns the number of torrents actually added.
+     */
+    public int prefetch(String[] magnets, int budget) {
+        int count = 0;
+        int limit = Math.min(budget, MAX_SPECULATIVE);
+        for (String magnet : magnets) {
+            if (count >= limit)
+                break;
+            String hash = TorrentModule.hashFromMagnet(magnet);
+            if (hash == null)
+                continue;
+
+            synchronized (this) {
+                if (speculative.get(hash) != null)
+                    continue; // Touch LRU, already warming
+            }
+            if (TorrentModule.liveHandle(session, hash) != null)
+                continue; // Foreground / already live
+            if (TorrentModule.parkedParams(hash) != null)
+                continue; // Played before: resume data already has the metadata
+
+            try {
+                AddTorrentParams params = AddTorrentParams.parseMagnetUri(magnet);
+                params.setSavePath(downloadDir.getAbsolutePath());
+                params.swig().setMax_connections(SPECULATIVE_CONNECTIONS);
+                params.swig().setMax_uploads(1);
+
+                error_code ec = new error_code();
+                torrent_handle h = session.swig().add_torrent(params.swig(), ec);
+                if (ec.value() != 0 || h == null || !h.is_valid()) {
+                    Log.e(TAG, "Prefetch add error: " + ec.message());
+                    continue;
+                }
+                TorrentHandle th = new TorrentHandle(h);
+                // Magnet defaults are paused + auto-managed; out of the queue it has to be
+                // started by hand or it never fetches metadata
+                th.unsetFlags(TorrentFlags.AUTO_MANAGED); // Keep it out of the download queue
+                th.resume();
+
+                synchronized (this) {
+                    speculative.put(hash, new Entry(th));
+                    added++;
+                    evictOverflow();
+                }
+                count++;
+            } catch (Exception e) {
+                Log.e(TAG, "Prefetch Error", e);
+            }
+        }
+        return count;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> it = speculative.entrySet().iterator();
+        while (speculative.size() > MAX_SPECULATIVE && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            evicted++;
+            try {
+                if (eldest.getValue().th.isValid())
+                    session.swig().remove_torrent(eldest.getValue().th.swig());
+            } catch (Exception e) {
+                Log.e(TAG, "Evict Error", e);
+            }
+        }
+    }
+
+    /**
+     * Called from addMagnet: if we already warmed this hash, turn it into a normal
+     * foreground torrent. Returns true when the caller must not add it again.
+     */
+    public boolean promote(String hash) {
+        Entry entry;
+        synchronized (this) {
+            entry = speculative.remove(hash);
+            if (entry == null)
+                return false;
+            promoted++;
+        }
+        TorrentHandle th = entry.th;
+        if (!th.isValid())
+            return false;
+
+        TorrentModule.restoreForeground(th);
+        Log.d(TAG, "Promoted warmed torrent: " + hash);
+        return true;
+    }
+
+    public synchronized boolean isSpeculative(String hash) {
+        return speculative.containsKey(hash);
+    }
+
+    public synchronized WritableMap toMetrics() {
+        WritableMap map = Arguments.createMap();
+        map.putInt("live", speculative.size());
+        map.putDouble("added", (double) added);
+        map.putDouble("evicted", (double) evicted);
+        map.putDouble("promoted", (double) promoted);
+        map.putDouble("metadataAvgMs", metadataCount > 0 ? (double) metadataTotalMs / metadataCount : 0.0);
+        return map;
+    }
+}
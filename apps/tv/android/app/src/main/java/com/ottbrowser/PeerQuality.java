@@ -0,0 +1,377 @@
+package com.ottbrowser;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.libtorrent4j.AlertListener;
+import org.libtorrent4j.PeerInfo;
+import org.libtorrent4j.SessionManager;
+import org.libtorrent4j.TcpEndpoint;
+import org.libtorrent4j.TorrentHandle;
+import org.libtorrent4j.alerts.Alert;
+import org.libtorrent4j.alerts.AlertType;
+import org.libtorrent4j.alerts.BlockDownloadingAlert;
+import org.libtorrent4j.alerts.BlockFinishedAlert;
+import org.libtorrent4j.alerts.BlockTimeoutAlert;
+import org.libtorrent4j.alerts.PeerAlert;
+import org.libtorrent4j.swig.address;
+import org.libtorrent4j.swig.error_code;
+import org.libtorrent4j.swig.ip_filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deadline-aware peer scoring for the stream being watched.
+ *
+ * With connectionsLimit(60) libtorrent keeps whoever it connected to first, even
+ * if they never deliver our deadline pieces. From block alerts we track per peer
+ * how fast block requests are answered, how many time out and how much they
+ * delivered inside the deadline window (focus piece onwards). Every tick the worst
+ * scorers are banned for a few minutes through the session ip_filter (libtorrent4j
+ * can't disconnect a single peer), which frees their slots for new candidates.
+ * Only peers connected right now are tracked and judged; a connected peer that
+ * delivered nothing for IDLE_TICKS_TO_JUDGE ticks (choking us, hoarding a slot) is
+ * judged even though we never got to send it requests. LSD/LAN peers get a bonus
+ * and are never banned.
+ */
+public class PeerQuality implements AlertListener {
+    private static final String TAG = "PeerQuality";
+
+    private static final int WINDOW_PIECES = 64; // Same as the server's deadline window
+    private static final long BLOCK_BYTES = 16 * 1024;
+    private static final long PENDING_EXPIRY_MS = 30_000;
+
+    // Replacement policy
+    private static final int MIN_PEERS_TO_REPLACE = 12;
+    private static final int MIN_REQUESTS = 8; // Don't judge peers we barely asked
+    private static final int IDLE_TICKS_TO_JUDGE = 3; // ...unless they sat on a slot this long
+    private static final int REPLACE_PER_TICK = 2;
+    private static final double REPLACE_BELOW_MEDIAN = 0.25;
+    private static final long BAN_MS = 3 * 60_000L;
+    private static final long IP_BLOCKED = 1; // ip_filter::blocked
+
+    private static final int LSD_SOURCE = 0x08; // peer_info::lsd
+
+    private static class PeerStats {
+        final String ip;
+        boolean lan;
+        long requests;
+        long blocks;
+        long latencyTotalMs;
+        long timeouts;
+        long windowBytes;
+        int idleTicks; // Consecutive ticks without a single block
+        // Smoothed over ticks
+        double windowRate;
+        double latencyMs;
+        double score;
+
+        PeerStats(String ip) {
+            this.ip = ip;
+            this.lan = isLan(ip);
+        }
+    }
+
+    private final SessionManager session;
+
+    private String focusHash;
+    private int focusPiece = -1;
+    private long periodStart = System.currentTimeMillis();
+
+    private final Map<String, PeerStats> peers = new HashMap<>();
+    // "ip/piece/block" -> request time
+    private final Map<String, Long> pending = new HashMap<>();
+    // ip -> ban expiry
+    private final Map<String, Long> banned = new HashMap<>();
+
+    private long replaced = 0;
+    private long timeouts = 0;
+
+    public PeerQuality(SessionManager session) {
+        this.session = session;
+    }
+
+    @Override
+    public int[] types() {
+        return new int[] { AlertType.BLOCK_DOWNLOADING.swig(), AlertType.BLOCK_FINISHED.swig(),
+                AlertType.BLOCK_TIMEOUT.swig() };
+    }
+
+    @Override
+    public void alert(Alert<?> alert) {
+        try {
+            if (!(alert instanceof PeerAlert))
+                return;
+            PeerAlert<?> a = (PeerAlert<?>) alert;
+            String hash;
+            synchronized (this) {
+                hash = focusHash;
+            }
+            if (hash == null || !hash.equals(a.handle().swig().info_hash().to_hex().toLowerCase()))
+                return; // Only the stream being watched matters
+
+            TcpEndpoint ep = a.endpoint();
+            String ip = String.valueOf(ep.address());
+            long now = System.currentTimeMillis();
+
+            synchronized (this) {
+                PeerStats stats = peers.get(ip);
+                if (stats == null) {
+                    stats = new PeerStats(ip);
+                    peers.put(ip, stats);
+                }
+                if (alert instanceof BlockDownloadingAlert) {
+                    BlockDownloadingAlert b = (BlockDownloadingAlert) alert;
+                    pending.put(ip + "/" + b.pieceIndex() + "/" + b.blockIndex(), now);
+                    stats.requests++;
+                } else if (alert instanceof BlockFinishedAlert) {
+                    BlockFinishedAlert b = (BlockFinishedAlert) alert;
+                    Long askedAt = pending.remove(ip + "/" + b.pieceIndex() + "/" + b.blockIndex());
+                    if (askedAt != null)
+                        stats.latencyTotalMs += now - askedAt;
+                    stats.blocks++;
+                    if (inWindow(b.pieceIndex()))
+                        stats.windowBytes += BLOCK_BYTES;
+                } else if (alert instanceof BlockTimeoutAlert) {
+                    BlockTimeoutAlert b = (BlockTimeoutAlert) alert;
+                    pending.remove(ip + "/" + b.pieceIndex() + "/" + b.blockIndex());
+                    stats.timeouts++;
+                    timeouts++;
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Alert Error", e);
+        }
+    }
+
+    // Caller holds the lock
+    private boolean inWindow(int piece) {
+        return focusPiece >= 0 && piece >= focusPiece && piece < focusPiece + WINDOW_PIECES;
+    }
+
+    /** Called with the playback position; switching torrents starts from scratch. */
+    public synchronized void setFocus(String hash, int piece) {
+        if (!hash.equals(focusHash)) {
+            focusHash = hash;
+            peers.clear();
+            pending.clear();
+            periodStart = System.currentTimeMillis();
+        }
+        focusPiece = piece;
+    }
+
+    public void tick() {
+        String hash;
+        synchronized (this) {
+            hash = focusHash;
+        }
+        if (hash == null || !session.isRunning())
+            return;
+        try {
+            TorrentHandle th = TorrentModule.liveHandle(session, hash); // No touch: must not keep it alive
+            List<PeerInfo> connected = th != null ? th.peerInfo() : null;
+
+            List<String> toBan = new ArrayList<>();
+            List<String> toUnban = new ArrayList<>();
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                long elapsed = Math.max(1, now - periodStart);
+                periodStart = now;
+
+                // Track exactly the connected set: peers that left are forgotten, peers
+                // that never sent a block (so no alert) are added
+                Set<String> live = new HashSet<>();
+                if (connected != null) {
+                    for (PeerInfo info : connected) {
+                        String ip = hostOf(info.ip());
+                        live.add(ip);
+                        PeerStats stats = peers.get(ip);
+                        if (stats == null) {
+                            stats = new PeerStats(ip);
+                            peers.put(ip, stats);
+                        }
+                        // LSD-discovered peers count as local even on a routed address
+                        if ((info.source() & LSD_SOURCE) != 0)
+                            stats.lan = true;
+                    }
+                }
+                peers.keySet().retainAll(live);
+                Iterator<String> keys = pending.keySet().iterator();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    if (!live.contains(key.substring(0, key.indexOf('/'))))
+                        keys.remove();
+                }
+
+                List<PeerStats> judged = new ArrayList<>();
+                for (PeerStats stats : peers.values()) {
+                    score(stats, elapsed);
+                    if (!stats.lan && (stats.requests >= MIN_REQUESTS || stats.idleTicks >= IDLE_TICKS_TO_JUDGE))
+                        judged.add(stats);
+                }
+
+                if (judged.size() >= MIN_PEERS_TO_REPLACE) {
+                    Collections.sort(judged, BY_SCORE);
+                    double median = judged.get(judged.size() / 2).score;
+                    for (int i = 0; i < judged.size() && toBan.size() < REPLACE_PER_TICK; i++) {
+                        PeerStats worst = judged.get(i);
+                        if (median > 0 && worst.score >= median * REPLACE_BELOW_MEDIAN)
+                            break;
+                        if (median <= 0 && worst.score >= 0)
+                            break;
+                        toBan.add(worst.ip);
+                    }
+                }
+                for (String ip : toBan) {
+                    banned.put(ip, now + BAN_MS);
+                    peers.remove(ip);
+                    replaced++;
+                }
+
+                Iterator<Map.Entry<String, Long>> it = banned.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Long> e = it.next();
+                    if (now >= e.getValue()) {
+                        toUnban.add(e.getKey());
+                        it.remove();
+                    }
+                }
+
+                // Requests that never got an answer (peer left, choked us, ...)
+                Iterator<Long> p = pending.values().iterator();
+                while (p.hasNext()) {
+                    if (now - p.next() > PENDING_EXPIRY_MS)
+                        p.remove();
+                }
+            }
+
+            if (!toBan.isEmpty() || !toUnban.isEmpty()) {
+                applyFilter(toBan, toUnban);
+                if (!toBan.isEmpty())
+                    Log.d(TAG, "Replaced slow peers " + toBan);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Tick Error", e);
+        }
+    }
+
+    /**
+     * KB/s delivered inside the deadline window, minus request latency (per 100ms)
+     * and timeouts. Rate and latency are smoothed across ticks, counters restart.
+     */
+    private static void score(PeerStats stats, long elapsedMs) {
+        stats.idleTicks = stats.blocks > 0 ? 0 : stats.idleTicks + 1;
+        double rate = stats.windowBytes * 1000.0 / elapsedMs;
+        stats.windowRate = stats.windowRate * 0.5 + rate * 0.5;
+        if (stats.blocks > 0) {
+            double latency = (double) stats.latencyTotalMs / stats.blocks;
+            stats.latencyMs = stats.latencyMs > 0 ? stats.latencyMs * 0.5 + latency * 0.5 : latency;
+        }
+        stats.score = stats.windowRate / 1024 - stats.latencyMs / 100 - 20 * stats.timeouts;
+        if (stats.lan)
+            stats.score += 100;
+
+        stats.requests = stats.requests / 2; // Keep some history for MIN_REQUESTS
+        stats.blocks = 0;
+        stats.latencyTotalMs = 0;
+        stats.timeouts = 0;
+        stats.windowBytes = 0;
+    }
+
+    private static final Comparator<PeerStats> BY_SCORE = new Comparator<PeerStats>() {
+        @Override
+        public int compare(PeerStats a, PeerStats b) {
+            return Double.compare(a.score, b.score);
+        }
+    };
+
+    // Expert: set_ip_filter drops connected peers that became blocked
+    private void applyFilter(List<String> ban, List<String> unban) {
+        ip_filter filter = session.swig().get_ip_filter();
+        for (String ip : ban)
+            rule(filter, ip, IP_BLOCKED);
+        for (String ip : unban)
+            rule(filter, ip, 0);
+        session.swig().set_ip_filter(filter);
+    }
+
+    private static void rule(ip_filter filter, String ip, long flags) {
+        error_code ec = new error_code();
+        address addr = address.from_string(ip, ec);
+        if (ec.value() != 0) {
+            Log.e(TAG, "Bad peer address " + ip);
+            return;
+        }
+        filter.add_rule(addr, addr, flags);
+    }
+
+    // "1.2.3.4:6881" / "[::1]:6881" -> host
+    private static String hostOf(String endpoint) {
+        if (endpoint == null)
+            return "";
+        if (endpoint.startsWith("[")) {
+            int end = endpoint.indexOf(']');
+            return end > 0 ? endpoint.substring(1, end) : endpoint;
+        }
+        int colon = endpoint.lastIndexOf(':');
+        return colon > 0 && endpoint.indexOf(':') == colon ? endpoint.substring(0, colon) : endpoint;
+    }
+
+    private static boolean isLan(String ip) {
+        if (ip.startsWith("10.") || ip.startsWith("192.168.") || ip.startsWith("169.254."))
+            return true;
+        if (ip.startsWith("172.")) {
+            int dot = ip.indexOf('.', 4);
+            try {
+                int second = Integer.parseInt(ip.substring(4, dot));
+                return second >= 16 && second <= 31;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+        String lower = ip.toLowerCase();
+        return lower.startsWith("fe80:") || lower.startsWith("fc") || lower.startsWith("fd");
+    }
+
+    public synchronized void clear() {
+        focusHash = null;
+        peers.clear();
+        pending.clear();
+        banned.clear(); // The filter goes with the session
+    }
+
+    public synchronized WritableMap toMetrics() {
+        WritableMap map = Arguments.createMap();
+        map.putInt("tracked", peers.size());
+        map.putInt("banned", banned.size());
+        map.putDouble("replaced", (double) replaced);
+        map.putDouble("timeouts", (double) timeouts);
+
+        // Worst first: explains a starving stream with plenty of peers connected
+        List<PeerStats> sorted = new ArrayList<>(peers.values());
+        Collections.sort(sorted, BY_SCORE);
+        WritableArray list = Arguments.createArray();
+        for (PeerStats stats : sorted) {
+            WritableMap peer = Arguments.createMap();
+            peer.putString("ip", stats.ip);
+            peer.putDouble("score", stats.score);
+            peer.putDouble("windowRate", stats.windowRate);
+            peer.putDouble("latencyMs", stats.latencyMs);
+            peer.putBoolean("lan", stats.lan);
+            list.pushMap(peer);
+        }
+        map.putArray("peers", list);
+        return map;
+    }
+}
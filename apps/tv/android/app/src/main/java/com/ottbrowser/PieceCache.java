@@ -0,0 +1,286 @@
+package com.ottbrowser;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.libtorrent4j.AlertListener;
+import org.libtorrent4j.TorrentHandle;
+import org.libtorrent4j.alerts.Alert;
+import org.libtorrent4j.alerts.AlertType;
+import org.libtorrent4j.alerts.PieceFinishedAlert;
+import org.libtorrent4j.alerts.ReadPieceAlert;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copies of freshly finished pieces.
+ *
+ * With libtorrent4j 2.1 (mmap storage) havePiece() can be true before the bytes are
+ * visible through a fresh FileInputStream, and every read crosses the VFS of slow
+ * TV storage. Pieces that land in the hot window ahead of the playhead are pulled
+ * with read_piece and served from memory; older pieces go to the file as before.
+ * Concurrent readers asking for the same piece share one pending read_piece call.
+ * A read_piece that fails or doesn't answer in time (alert dropped from a full
+ * queue) sends that piece to the file for the rest of its fresh window, so later
+ * chunks neither wait again nor re-issue the call.
+ * The hot window is bounded in bytes as well as pieces (HOT_BYTES): 8 MB pieces of
+ * 4K releases get one hot piece, and bigger pieces are never copied at all (the file
+ * path is cheaper than churning piece-sized arrays).
+ */
+public class PieceCache implements AlertListener {
+    private static final String TAG = "PieceCache";
+
+    // Pieces ahead of the playhead we pull into memory as soon as they finish
+    private static final int HOT_AHEAD = 16;
+    // A piece counts as "fresh" (maybe not flushed yet) for this long
+    private static final long FRESH_MS = 10_000;
+    private static final long MAX_BYTES = 32L * 1024 * 1024;
+    private static final long HOT_BYTES = MAX_BYTES / 4;
+    private static final int MAX_TRACKED = 512;
+
+    private static class PendingRead {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile byte[] data;
+    }
+
+    // Expert: access-ordered LinkedHashMap = LRU
+    private final LinkedHashMap<String, byte[]> pieces = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes = 0;
+
+    private static class Landed {
+        final long at;
+        boolean served;
+        boolean useFile; // read_piece failed or timed out
+
+        Landed(long at) {
+            this.at = at;
+        }
+    }
+
+    private final Map<String, PendingRead> pending = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Landed> finishedAt = new LinkedHashMap<String, Landed>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Landed> eldest) {
+            return size() > MAX_TRACKED;
+        }
+    };
+
+    private volatile String focusHash;
+    private volatile int focusPiece = -1;
+    private volatile int focusHotPieces = HOT_AHEAD;
+
+    // Metrics
+    private long bytesFromMemory = 0;
+    private long bytesFromFile = 0;
+    private long rangesFromMemory = 0;
+    private long rangesFromFile = 0;
+    private long readPieceCalls = 0;
+    private long sharedReads = 0;
+    private long failedReads = 0;
+    private long landedServed = 0;
+    private long landedToFirstByteTotalMs = 0;
+    private long landedToFirstByteMaxMs = 0;
+
+    @Override
+    public int[] types() {
+        return new int[] { AlertType.PIECE_FINISHED.swig(), AlertType.READ_PIECE.swig() };
+    }
+
+    @Override
+    public void alert(Alert<?> alert) {
+        try {
+            if (alert instanceof PieceFinishedAlert) {
+                onPieceFinished((PieceFinishedAlert) alert);
+            } else if (alert instanceof ReadPieceAlert) {
+                onReadPiece((ReadPieceAlert) alert);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Alert Error", e);
+        }
+    }
+
+    public void setFocus(String hash, int piece, int pieceLength) {
+        this.focusHotPieces = hotPieces(pieceLength);
+        this.focusHash = hash;
+        this.focusPiece = piece;
+    }
+
+    // A quarter of the budget for the hot window: hot pieces never evict each other
+    // and a single copy never exceeds 8 MB
+    static int hotPieces(int pieceLength) {
+        if (pieceLength <= 0)
+            return HOT_AHEAD;
+        return (int) Math.min(HOT_AHEAD, HOT_BYTES / pieceLength);
+    }
+
+    private void onPieceFinished(PieceFinishedAlert a) {
+        TorrentHandle th = a.handle();
+        String hash = th.swig().info_hash().to_hex().toLowerCase();
+        int piece = a.pieceIndex();
+        StreamTrace.record(StreamTrace.PIECE_FINISHED, StreamTrace.id(hash, -1), piece, 0);
+        synchronized (this) {
+            finishedAt.put(key(hash, piece), new Landed(System.currentTimeMillis()));
+        }
+
+        // Hot window: pull it into memory right away
+        int focus = focusPiece;
+        if (hash.equals(focusHash) && piece >= focus && piece < focus + focusHotPieces) {
+            startRead(hash, th, piece);
+        }
+    }
+
+    private void onReadPiece(ReadPieceAlert a) {
+        String hash = a.handle().swig().info_hash().to_hex().toLowerCase();
+        String key = key(hash, a.piece());
+        PendingRead read = pending.remove(key);
+
+        byte[] data = null;
+        if (a.error() == null || !a.error().isError()) {
+            data = a.bufferBytes();
+        }
+        if (data != null) {
+            synchronized (this) {
+                byte[] old = pieces.put(key, data);
+                if (old != null)
+                    cachedBytes -= old.length;
+                cachedBytes += data.length;
+                evict();
+            }
+        }
+        if (data == null)
+            giveUp(key);
+        if (read != null) {
+            read.data = data;
+            read.done.countDown();
+        }
+    }
+
+    // Serve this piece from the file until it stops being fresh
+    private synchronized void giveUp(String key) {
+        Landed landed = finishedAt.get(key);
+        if (landed != null && !landed.useFile) {
+            landed.useFile = true;
+            failedReads++;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, byte[]>> it = pieces.entrySet().iterator();
+        while (cachedBytes > MAX_BYTES && it.hasNext()) {
+            cachedBytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    private PendingRead startRead(String hash, TorrentHandle th, int piece) {
+        String key = key(hash, piece);
+        PendingRead read = new PendingRead();
+        PendingRead existing = pending.putIfAbsent(key, read);
+        if (existing != null) {
+            synchronized (this) {
+                sharedReads++;
+            }
+            return existing;
+        }
+        synchronized (this) {
+            readPieceCalls++;
+        }
+        th.readPiece(piece);
+        return read;
+    }
+
+    /**
+     * Returns the piece bytes if they are (or can quickly be) held in memory, or null
+     * when the caller should read from the file.
+     */
+    public byte[] get(String hash, TorrentHandle th, int piece, long waitMs) {
+        String key = key(hash, piece);
+        boolean fresh;
+        synchronized (this) {
+            byte[] data = pieces.get(key);
+            if (data != null)
+                return data;
+            Landed landed = finishedAt.get(key);
+            fresh = landed != null && !landed.useFile && System.currentTimeMillis() - landed.at < FRESH_MS;
+        }
+        if (!fresh)
+            return null; // Old piece: long flushed, file is fine
+        if (hash.equals(focusHash) && focusHotPieces == 0)
+            return null; // Pieces too big to copy
+
+        PendingRead read = startRead(hash, th, piece);
+        try {
+            if (read.done.await(waitMs, TimeUnit.MILLISECONDS))
+                return read.data;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        // No answer in time: drop the dead entry, a late alert still fills the LRU
+        pending.remove(key, read);
+        giveUp(key);
+        return null;
+    }
+
+    // Reader bookkeeping (one call per chunk served)
+    public synchronized void recordServed(String hash, int piece, int bytes, boolean fromMemory,
+            boolean firstChunkOfRange) {
+        if (fromMemory) {
+            bytesFromMemory += bytes;
+            if (firstChunkOfRange)
+                rangesFromMemory++;
+        } else {
+            bytesFromFile += bytes;
+            if (firstChunkOfRange)
+                rangesFromFile++;
+        }
+
+        // Time from piece landing to its first byte leaving the server
+        Landed landed = finishedAt.get(key(hash, piece));
+        if (landed != null && !landed.served) {
+            landed.served = true;
+            long delta = System.currentTimeMillis() - landed.at;
+            landedServed++;
+            landedToFirstByteTotalMs += delta;
+            if (delta > landedToFirstByteMaxMs)
+                landedToFirstByteMaxMs = delta;
+        }
+    }
+
+    public synchronized void clear() {
+        pieces.clear();
+        cachedBytes = 0;
+        finishedAt.clear();
+        for (PendingRead read : pending.values())
+            read.done.countDown();
+        pending.clear();
+    }
+
+    private static String key(String hash, int piece) {
+        return hash + ":" + piece;
+    }
+
+    public synchronized WritableMap toMetrics() {
+        WritableMap map = Arguments.createMap();
+        map.putInt("cachedPieces", pieces.size());
+        map.putDouble("cachedBytes", (double) cachedBytes);
+        map.putDouble("bytesFromMemory", (double) bytesFromMemory);
+        map.putDouble("bytesFromFile", (double) bytesFromFile);
+        map.putDouble("rangesFromMemory", (double) rangesFromMemory);
+        map.putDouble("rangesFromFile", (double) rangesFromFile);
+        map.putDouble("readPieceCalls", (double) readPieceCalls);
+        map.putDouble("sharedReads", (double) sharedReads);
+        map.putDouble("failedReads", (double) failedReads);
+        map.putDouble("landedToFirstByteAvgMs",
+                landedServed > 0 ? (double) landedToFirstByteTotalMs / landedServed : 0.0);
+        map.putDouble("landedToFirstByteMaxMs", (double) landedToFirstByteMaxMs);
+        return map;
+    }
+}
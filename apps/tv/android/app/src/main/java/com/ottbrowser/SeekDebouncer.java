@@ -0,0 +1,217 @@
+package com.ottbrowser;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.libtorrent4j.TorrentHandle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seek-storm guard for deadline scheduling.
+ *
+ * Holding FF/RW on the remote fires a burst of range requests and pulses. Instead of
+ * setting a full deadline window for every intermediate position, we detect the burst,
+ * drop the stale deadlines, fetch only the piece under each intermediate position
+ * (enough for a keyframe) and commit the full read-ahead window once the position
+ * has been still for SETTLE_MS. Only the storming source's own window is dropped;
+ * pieces inside another source's window of the same torrent keep their deadlines.
+ */
+public class SeekDebouncer {
+    private static final String TAG = "SeekDebouncer";
+
+    // A jump further than this (or any backwards jump) counts as a seek
+    private static final int SEEK_JUMP_PIECES = 8;
+    // Two seeks closer than this start a storm
+    private static final long STORM_WINDOW_MS = 700;
+    // Position must be still this long before we commit the full window
+    private static final long SETTLE_MS = 600;
+
+    private static final int URGENT_PIECES = 4;
+    private static final int URGENT_DEADLINE_MS = 800;
+
+    // States of streams nobody asked about for this long are dropped
+    private static final long STATE_IDLE_MS = 10 * 60_000L;
+
+    private static class SeekState {
+        int lastPiece = -1;
+        long lastSeekMs = 0;
+        long lastRequestMs = 0;
+        boolean storming = false;
+        long generation = 0;
+        // Deadline window this source last set, -1 if none
+        int windowStart = -1;
+        int windowEnd = -1;
+    }
+
+    private final ScheduledExecutorService ticker;
+    private final Map<String, SeekState> states = new HashMap<>();
+
+    private long seeks = 0;
+    private long storms = 0;
+    private long intermediatePositions = 0;
+    private long deadlinesSet = 0;
+
+    public SeekDebouncer(ScheduledExecutorService ticker) {
+        this.ticker = ticker;
+    }
+
+    /**
+     * Requests deadlines for [startPiece, endPiece]. The first pieces get the urgent
+     * deadline, the rest prefetchDeadlineMs. During a seek storm only startPiece is
+     * requested and the window is deferred until the position settles.
+     *
+     * key identifies one position source: the playback pulse and the HTTP reader
+     * frontier move independently, so each needs its own state or alternating
+     * between them looks like seeking.
+     */
+    public void request(String key, TorrentHandle th, int startPiece, int endPiece, int prefetchDeadlineMs) {
+        long now = System.currentTimeMillis();
+        SeekState state;
+        boolean storming;
+        long generation;
+        int staleStart;
+        int staleEnd;
+        List<int[]> otherWindows = new ArrayList<>();
+
+        synchronized (this) {
+            state = states.get(key);
+            if (state == null) {
+                pruneIdle(now);
+                state = new SeekState();
+                states.put(key, state);
+            }
+            state.lastRequestMs = now;
+
+            int delta = startPiece - state.lastPiece;
+            boolean isSeek = state.lastPiece >= 0 && (delta < 0 || delta > SEEK_JUMP_PIECES);
+            if (isSeek) {
+                seeks++;
+                StreamTrace.record(StreamTrace.SEEK, StreamTrace.id(key, -1), state.lastPiece, startPiece);
+                if (!state.storming && now - state.lastSeekMs < STORM_WINDOW_MS) {
+                    state.storming = true;
+                    storms++;
+                    Log.d(TAG, "Seek storm on " + key);
+                }
+                state.lastSeekMs = now;
+            }
+            state.lastPiece = startPiece;
+            state.generation++;
+            storming = state.storming;
+            generation = state.generation;
+            if (storming)
+                intermediatePositions++;
+
+            staleStart = state.windowStart;
+            staleEnd = state.windowEnd;
+            state.windowStart = startPiece;
+            state.windowEnd = storming ? startPiece : endPiece;
+            if (storming)
+                collectOtherWindows(key, otherWindows);
+        }
+
+        long traceId = StreamTrace.id(key, -1);
+        if (!storming) {
+            applyWindow(traceId, th, startPiece, endPiece, prefetchDeadlineMs);
+            return;
+        }
+
+        // Storm: forget positions we've scrubbed past, keep just the keyframe region
+        try {
+            for (int p = staleStart; staleStart >= 0 && p <= staleEnd; p++) {
+                if (p != startPiece && !covered(otherWindows, p))
+                    th.resetPieceDeadline(p);
+            }
+            th.setPieceDeadline(startPiece, URGENT_DEADLINE_MS);
+            countDeadlines(1);
+            StreamTrace.record(StreamTrace.DEADLINE, traceId, startPiece, startPiece);
+        } catch (Exception e) {
+            Log.e(TAG, "Storm Deadline Error", e);
+        }
+
+        final SeekState s = state;
+        ticker.schedule(() -> settle(s, generation, traceId, th, startPiece, endPiece, prefetchDeadlineMs),
+                SETTLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void settle(SeekState state, long generation, long traceId, TorrentHandle th, int startPiece, int endPiece,
+            int prefetchDeadlineMs) {
+        synchronized (this) {
+            if (state.generation != generation)
+                return; // User is still scrubbing
+            state.storming = false;
+            state.windowEnd = endPiece;
+        }
+        Log.d(TAG, "Seek settled at piece " + startPiece);
+        applyWindow(traceId, th, startPiece, endPiece, prefetchDeadlineMs);
+    }
+
+    private void applyWindow(long traceId, TorrentHandle th, int startPiece, int endPiece, int prefetchDeadlineMs) {
+        try {
+            for (int p = startPiece; p <= endPiece; p++) {
+                if (p < startPiece + URGENT_PIECES) {
+                    th.setPieceDeadline(p, URGENT_DEADLINE_MS); // Immediate
+                } else {
+                    th.setPieceDeadline(p, prefetchDeadlineMs); // Steady Prefetch
+                }
+            }
+            countDeadlines(endPiece - startPiece + 1);
+            StreamTrace.record(StreamTrace.DEADLINE, traceId, startPiece, endPiece);
+        } catch (Exception e) {
+            Log.e(TAG, "Window Error", e);
+        }
+    }
+
+    private synchronized void countDeadlines(int n) {
+        deadlinesSet += n;
+    }
+
+    // Caller holds the lock. Keys are "<hash>" (reader) and "<hash>/pulse"
+    private void collectOtherWindows(String key, List<int[]> out) {
+        String torrent = torrentOf(key);
+        for (Map.Entry<String, SeekState> e : states.entrySet()) {
+            SeekState other = e.getValue();
+            if (!e.getKey().equals(key) && torrentOf(e.getKey()).equals(torrent) && other.windowStart >= 0)
+                out.add(new int[] { other.windowStart, other.windowEnd });
+        }
+    }
+
+    private static String torrentOf(String key) {
+        int slash = key.indexOf('/');
+        return slash >= 0 ? key.substring(0, slash) : key;
+    }
+
+    private static boolean covered(List<int[]> windows, int piece) {
+        for (int[] w : windows) {
+            if (piece >= w[0] && piece <= w[1])
+                return true;
+        }
+        return false;
+    }
+
+    // Caller holds the lock
+    private void pruneIdle(long now) {
+        Iterator<SeekState> it = states.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().lastRequestMs > STATE_IDLE_MS)
+                it.remove();
+        }
+    }
+
+    public synchronized WritableMap toMetrics() {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("seeks", (double) seeks);
+        map.putDouble("storms", (double) storms);
+        map.putDouble("intermediatePositions", (double) intermediatePositions);
+        map.putDouble("deadlinesSet", (double) deadlinesSet);
+        return map;
+    }
+}
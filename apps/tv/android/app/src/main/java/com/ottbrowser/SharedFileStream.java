@@ -0,0 +1,353 @@
+package com.ottbrowser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One per served file: groups every HTTP reader of /stream/<hash>/<index>.
+ *
+ * Players open several connections to the same URL (MKV cue/header probes, audio
+ * track readers, 503 retries). Each reader is classified as MAIN (the playback
+ * reader, which owns the deadline window and the playhead) or PROBE (small bounded
+ * ranges and tail reads while a main reader is active), so probes no longer spend
+ * deadlines or move the playhead. A request that continues where a recent reader
+ * stopped is always MAIN, so players that stream in bounded chunks still get a
+ * playback reader. All readers share one FileChannel (positional reads, no
+ * per-request open) on top of the shared PieceCache.
+ *
+ * Fully downloaded regions are memory-mapped read-only, so serving them is a copy
+ * out of the page cache instead of a read() syscall per chunk. Mappings are cached
+ * per file, capped globally (MAX_MAPPED_BYTES, address space is tight on 32-bit TV
+ * boxes) and dropped once the main reader has moved past them, or once the file has
+ * had no reader for MAIN_LINGER_MS. When the cap is hit, files nobody is reading
+ * give up their mappings before this file drops its own coldest region. Java has no
+ * explicit unmap; dropped mappings are released by the GC.
+ */
+public class SharedFileStream {
+    // Bounded ranges up to this size are header/cue/index probes
+    private static final long PROBE_MAX_BYTES = 2L * 1024 * 1024;
+    // Reads in the tail of the file while playback is running are cue/moov probes
+    private static final long TAIL_BYTES = 8L * 1024 * 1024;
+    // A main reader counts as "playing" for this long after its last activity
+    private static final long MAIN_LINGER_MS = 10_000;
+    // A request starting this close to where a recent reader stopped continues it
+    private static final long CONTINUITY_SLACK = 256 * 1024;
+    private static final int RECENT_ENDS = 8;
+
+    // Mapping granularity and global cap across all files
+    private static final long REGION_BYTES = 8L * 1024 * 1024;
+    private static final long MAX_MAPPED_BYTES = 64L * 1024 * 1024;
+    // Don't re-check an incomplete region on every chunk
+    private static final long INCOMPLETE_RETRY_MS = 1000;
+
+    private static final AtomicLong mappedBytes = new AtomicLong();
+    private static final AtomicLong mappedReads = new AtomicLong();
+    // Files holding at least one mapping (global eviction); lock order: never take a
+    // stream lock while holding this one
+    private static final Set<SharedFileStream> mapping = new HashSet<>();
+    // region() result when only the global cap stood in the way
+    private static final ByteBuffer NO_BUDGET = ByteBuffer.allocate(0);
+
+    // What readMapped needs from the torrent (TorrentHandle::havePiece in the app)
+    public interface PieceSource {
+        boolean havePiece(int piece);
+    }
+
+    public static class Reader {
+        final boolean main;
+        final long start;
+        volatile long position;
+        volatile int lastPlannedPiece = -1;
+
+        Reader(boolean main, long start) {
+            this.main = main;
+            this.start = start;
+            this.position = start;
+        }
+    }
+
+    private final File file;
+    private final long length;
+    private final long fileOffset;
+    private final int pieceLength;
+
+    private FileChannel channel;
+    private final List<Reader> readers = new ArrayList<>();
+    private Reader main;
+    private long mainLastActiveMs = 0;
+    private boolean released = false;
+    private long idleSinceMs = System.currentTimeMillis();
+
+    // Where recently closed readers stopped (ring), for continuity
+    private final long[] recentEnds = new long[RECENT_ENDS];
+    private final long[] recentEndsAt = new long[RECENT_ENDS];
+    private int recentNext = 0;
+
+    // region index -> mapping; access-ordered so the cap drops the coldest first
+    private final LinkedHashMap<Long, MappedByteBuffer> regions = new LinkedHashMap<>(8, 0.75f, true);
+    private final Map<Long, Long> incompleteUntil = new HashMap<>();
+
+    public SharedFileStream(File file, long length, long fileOffset, int pieceLength) {
+        this.file = file;
+        this.length = length;
+        this.fileOffset = fileOffset;
+        this.pieceLength = pieceLength;
+    }
+
+    /**
+     * Decides the role of a new request without registering it (a 503 never opens a
+     * reader, but a main request still needs its deadlines).
+     */
+    public synchronized boolean isMainRequest(long start, long end, boolean openEnded) {
+        if (continuesRecent(start))
+            return true;
+        if (!openEnded && end - start + 1 <= PROBE_MAX_BYTES)
+            return false;
+        boolean playing = main != null || System.currentTimeMillis() - mainLastActiveMs < MAIN_LINGER_MS;
+        if (playing && start >= length - TAIL_BYTES)
+            return false;
+        return true;
+    }
+
+    // Caller holds the lock
+    private boolean continuesRecent(long start) {
+        for (Reader r : readers) {
+            if (Math.abs(start - r.position) <= CONTINUITY_SLACK)
+                return true;
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < RECENT_ENDS; i++) {
+            if (recentEndsAt[i] > 0 && now - recentEndsAt[i] < MAIN_LINGER_MS
+                    && Math.abs(start - recentEnds[i]) <= CONTINUITY_SLACK)
+                return true;
+        }
+        return false;
+    }
+
+    public synchronized Reader open(long start, boolean isMain) {
+        Reader reader = new Reader(isMain, start);
+        readers.add(reader);
+        if (isMain) {
+            main = reader; // Newest playback reader wins (old one is a seek leftover)
+            mainLastActiveMs = System.currentTimeMillis();
+        }
+        return reader;
+    }
+
+    public void close(Reader reader) {
+        synchronized (this) {
+            readers.remove(reader);
+            long now = System.currentTimeMillis();
+            if (reader.position > reader.start) {
+                recentEnds[recentNext] = reader.position;
+                recentEndsAt[recentNext] = now;
+                recentNext = (recentNext + 1) % RECENT_ENDS;
+            }
+            if (reader == main) {
+                main = null;
+                mainLastActiveMs = now;
+            }
+            if (readers.isEmpty())
+                idleSinceMs = now;
+        }
+        releaseIdle(MAIN_LINGER_MS);
+    }
+
+    public synchronized boolean isCurrentMain(Reader reader) {
+        return reader == main;
+    }
+
+    // Piece under the main reader, -1 if nothing is playing
+    public synchronized int mainPiece() {
+        return main != null ? pieceOf(main.position) : -1;
+    }
+
+    public int pieceOf(long filePosition) {
+        return (int) ((fileOffset + filePosition) / pieceLength);
+    }
+
+    public synchronized int readerCount() {
+        return readers.size();
+    }
+
+    // Positional read on the shared channel (thread-safe, no seek state)
+    public int read(long position, byte[] buf, int off, int len) throws IOException {
+        return channel().read(ByteBuffer.wrap(buf, off, len), position);
+    }
+
+    /**
+     * Reads from a mapping of the region holding position, if every piece of that
+     * region is downloaded. Returns -1 when the caller should fall back to read().
+     */
+    public int readMapped(PieceSource pieces, long position, byte[] buf, int off, int len) {
+        long region = position / REGION_BYTES;
+        ByteBuffer view;
+        try {
+            view = region(pieces, region, false);
+            if (view == NO_BUDGET) {
+                releaseIdle(0); // Files nobody reads go first, then our own coldest
+                view = region(pieces, region, true);
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+        if (view == null || view == NO_BUDGET)
+            return -1;
+        int inRegion = (int) (position - region * REGION_BYTES);
+        int n = Math.min(len, view.limit() - inRegion);
+        if (n <= 0)
+            return -1;
+        view.position(inRegion);
+        view.get(buf, off, n);
+        mappedReads.incrementAndGet();
+        return n;
+    }
+
+    // Private view of the (cached) mapping, null if the region can't be mapped yet,
+    // NO_BUDGET if only the global cap is in the way
+    private synchronized ByteBuffer region(PieceSource pieces, long region, boolean dropOwn) throws IOException {
+        MappedByteBuffer mapped = regions.get(region);
+        if (mapped != null)
+            return mapped.duplicate();
+
+        long now = System.currentTimeMillis();
+        Long retryAt = incompleteUntil.get(region);
+        if (retryAt != null && now < retryAt)
+            return null;
+
+        long start = region * REGION_BYTES;
+        long size = Math.min(REGION_BYTES, length - start);
+        if (size <= 0)
+            return null;
+        int lastPiece = pieceOf(start + size - 1);
+        for (int p = pieceOf(start); p <= lastPiece; p++) {
+            if (!pieces.havePiece(p)) {
+                incompleteUntil.put(region, now + INCOMPLETE_RETRY_MS);
+                return null;
+            }
+        }
+        incompleteUntil.remove(region);
+
+        FileChannel ch = channel();
+        if (start + size > ch.size())
+            return null; // File not fully allocated yet
+
+        trimBehindMain();
+        if (mappedBytes.get() + size > MAX_MAPPED_BYTES) {
+            if (!dropOwn)
+                return NO_BUDGET;
+            while (mappedBytes.get() + size > MAX_MAPPED_BYTES && !regions.isEmpty())
+                dropRegion(regions.keySet().iterator().next()); // Coldest of this file
+            if (mappedBytes.get() + size > MAX_MAPPED_BYTES)
+                return null; // Files with live readers hold the budget
+        }
+
+        mapped = ch.map(FileChannel.MapMode.READ_ONLY, start, size);
+        regions.put(region, mapped);
+        mappedBytes.addAndGet(size);
+        synchronized (mapping) {
+            mapping.add(this);
+        }
+        return mapped.duplicate();
+    }
+
+    /**
+     * Drops mappings the main reader has passed (one region behind is kept for
+     * small rewinds). Called as the main reader advances.
+     */
+    public synchronized void trimBehindMain() {
+        if (main == null)
+            return;
+        long keepFrom = main.position / REGION_BYTES - 1;
+        Iterator<Map.Entry<Long, MappedByteBuffer>> it = regions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, MappedByteBuffer> e = it.next();
+            if (e.getKey() < keepFrom) {
+                mappedBytes.addAndGet(-e.getValue().capacity());
+                it.remove();
+            }
+        }
+    }
+
+    private void dropRegion(Long region) {
+        MappedByteBuffer mapped = regions.remove(region);
+        if (mapped != null)
+            mappedBytes.addAndGet(-mapped.capacity());
+    }
+
+    /**
+     * Drops every mapping of files that have had no reader for at least idleMs.
+     * Runs when a reader closes and when the cap is hit (idleMs 0).
+     */
+    public static void releaseIdle(long idleMs) {
+        List<SharedFileStream> snapshot;
+        synchronized (mapping) {
+            snapshot = new ArrayList<>(mapping);
+        }
+        long now = System.currentTimeMillis();
+        for (SharedFileStream stream : snapshot)
+            stream.dropMappingsIfIdle(now, idleMs);
+    }
+
+    private synchronized void dropMappingsIfIdle(long now, long idleMs) {
+        if (!readers.isEmpty() || now - idleSinceMs < idleMs)
+            return;
+        dropMappings();
+    }
+
+    // Caller holds the lock
+    private void dropMappings() {
+        for (MappedByteBuffer mapped : regions.values())
+            mappedBytes.addAndGet(-mapped.capacity());
+        regions.clear();
+        synchronized (mapping) {
+            mapping.remove(this);
+        }
+    }
+
+    public synchronized int mappedRegionCount() {
+        return regions.size();
+    }
+
+    public static long getMappedBytes() {
+        return mappedBytes.get();
+    }
+
+    public static long getMappedReads() {
+        return mappedReads.get();
+    }
+
+    private synchronized FileChannel channel() throws IOException {
+        if (released)
+            throw new IOException("Stream released"); // Never reopen (and leak) a dropped stream
+        if (channel == null || !channel.isOpen()) {
+            channel = new RandomAccessFile(file, "r").getChannel();
+        }
+        return channel;
+    }
+
+    public synchronized void release() {
+        released = true;
+        dropMappings();
+        incompleteUntil.clear();
+        try {
+            if (channel != null)
+                channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,172 @@
+package com.ottbrowser;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Always-on stream event trace ("flight recorder").
+ *
+ * Log.d on the hot path hurt playback, so instead every interesting event is
+ * appended to a fixed, preallocated ring of longs: one atomic increment and four
+ * array stores, no locks, no allocation. Concurrent writers that wrap onto the same
+ * slot can tear a record; that is fine for a trace. The ring is only copied out when
+ * dumped (dumpTrace or /debug/trace).
+ *
+ * Every event carries a stream id (id(hash, fileIndex)), so pieces of prefetch and
+ * probe torrents can be told apart from the stream being played. Per-chunk work
+ * (disk / mapped reads) is summed per range and recorded once when the range ends,
+ * so a long playback session can't flush the range, stall and seek events out.
+ *
+ * Deliberately free of Android imports so the same class decodes dumps on a plain
+ * JVM: java com.ottbrowser.StreamTrace trace.bin
+ */
+public final class StreamTrace {
+    public static final int RANGE_IN = 1; // a = start byte, b = end byte (-1 open)
+    public static final int RANGE_OUT = 2; // a = status code, b = length
+    public static final int STALL_503 = 3; // a = piece
+    public static final int DEADLINE = 4; // a = first piece, b = last piece
+    public static final int PIECE_FINISHED = 5; // a = piece
+    public static final int SEEK = 6; // a = from piece, b = to piece
+    public static final int DISK_READ = 7; // per range: a = total micros, b = bytes
+    public static final int MAPPED_READ = 8; // per range: a = total micros, b = bytes
+
+    private static final String[] NAMES = { "?", "range_in", "range_out", "stall_503", "deadline",
+            "piece_finished", "seek", "disk_read", "mapped_read" };
+
+    private static final int MAGIC = 0x56545243; // "VTRC"
+    private static final int VERSION = 2;
+
+    private static final int CAPACITY = 8192; // events, power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final int SLOTS = 5; // nanos, type, id, a, b
+
+    private static final long[] ring = new long[CAPACITY * SLOTS];
+    private static final AtomicLong cursor = new AtomicLong();
+
+    private StreamTrace() {
+    }
+
+    public static void record(int type, long id, long a, long b) {
+        int base = (int) (cursor.getAndIncrement() & MASK) * SLOTS;
+        ring[base] = System.nanoTime();
+        ring[base + 1] = type;
+        ring[base + 2] = id;
+        ring[base + 3] = a;
+        ring[base + 4] = b;
+    }
+
+    /**
+     * Stream id: first 32 bits of the info hash, file index in the low 16 bits
+     * (0xffff = whole torrent). Cheap enough to precompute once per stream.
+     */
+    public static long id(String hash, int fileIndex) {
+        long prefix = 0;
+        try {
+            if (hash != null && hash.length() >= 8)
+                prefix = Long.parseLong(hash.substring(0, 8), 16);
+        } catch (NumberFormatException ignored) {
+        }
+        return (prefix << 16) | (fileIndex & 0xffff);
+    }
+
+    /**
+     * Writes the ring, oldest event first. Format (big endian): int magic, int version,
+     * long wall-clock ms at dump, long nanoTime at dump, int count, then count
+     * records of (long nanos, int type, long id, long a, long b).
+     */
+    public static void dump(OutputStream os) throws IOException {
+        long end = cursor.get();
+        long start = Math.max(0, end - CAPACITY);
+        long[] copy = ring.clone();
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeLong(System.nanoTime());
+        out.writeInt((int) (end - start));
+        for (long i = start; i < end; i++) {
+            int base = (int) (i & MASK) * SLOTS;
+            out.writeLong(copy[base]);
+            out.writeInt((int) copy[base + 1]);
+            out.writeLong(copy[base + 2]);
+            out.writeLong(copy[base + 3]);
+            out.writeLong(copy[base + 4]);
+        }
+        out.flush();
+    }
+
+    public static byte[] dumpBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        dump(bytes);
+        return bytes.toByteArray();
+    }
+
+    public static File dumpToFile(File dir) throws IOException {
+        File file = new File(dir, "stream-trace-" + System.currentTimeMillis() + ".bin");
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            dump(fos);
+        } finally {
+            fos.close();
+        }
+        return file;
+    }
+
+    // Offline decoder: prints a timeline relative to the first event
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: java com.ottbrowser.StreamTrace <trace.bin>");
+            return;
+        }
+        DataInputStream in = new DataInputStream(new FileInputStream(args[0]));
+        try {
+            if (in.readInt() != MAGIC) {
+                System.err.println("Not a stream trace");
+                return;
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                System.err.println("Unsupported trace version " + version);
+                return;
+            }
+            long dumpWallMs = in.readLong();
+            long dumpNanos = in.readLong();
+            int count = in.readInt();
+            System.out.println("# version " + version + ", " + count + " events, dumped at " + dumpWallMs);
+
+            long first = -1;
+            for (int i = 0; i < count; i++) {
+                long nanos;
+                try {
+                    nanos = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                int type = in.readInt();
+                long id = in.readLong();
+                long a = in.readLong();
+                long b = in.readLong();
+                if (first < 0)
+                    first = nanos;
+                long wallMs = dumpWallMs - (dumpNanos - nanos) / 1_000_000;
+                String name = type > 0 && type < NAMES.length ? NAMES[type] : "type" + type;
+                String stream = String.format("%08x/%s", id >>> 16,
+                        (id & 0xffff) == 0xffff ? "*" : String.valueOf(id & 0xffff));
+                System.out.printf("%10.3f ms  %d  %-15s %-12s a=%d b=%d%n", (nanos - first) / 1e6, wallMs, name,
+                        stream, a, b);
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.ottbrowser;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.libtorrent4j.AddTorrentParams;
+import org.libtorrent4j.Priority;
+import org.libtorrent4j.SessionManager;
+import org.libtorrent4j.TorrentFlags;
+import org.libtorrent4j.TorrentHandle;
+import org.libtorrent4j.TorrentInfo;
+import org.libtorrent4j.TorrentStatus;
+import org.libtorrent4j.swig.error_code;
+import org.libtorrent4j.swig.torrent_handle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Races candidate magnets of the same title before we commit to one.
+ *
+ * Every candidate is added in probe mode (not auto-managed, capped connections).
+ * Once its metadata arrives, only the best video file is wanted and its first
+ * pieces get deadlines. For timeBudgetMs we sample time-to-metadata, connected
+ * peers, availability of those first pieces and the early download rate. Then we
+ * rank the candidates and drop the losers. The winner stays warm for KEEP_WINNER_MS
+ * so addMagnet can promote it without starting over.
+ */
+public class SwarmProbe {
+    private static final String TAG = "SwarmProbe";
+
+    private static final int MAX_CANDIDATES = 5;
+    private static final int PROBE_CONNECTIONS = 15;
+    private static final int MIN_BUDGET_MS = 2000;
+    private static final int MAX_BUDGET_MS = 20_000;
+    private static final long SAMPLE_MS = 500;
+    private static final long KEEP_WINNER_MS = 60_000;
+
+    // First pieces of the best video: what playback actually needs first
+    private static final int HEAD_PIECES = 4;
+    private static final int HEAD_DEADLINE_MS = 1500;
+
+    private static class Candidate {
+        String magnet;
+        String hash;
+        TorrentHandle th;
+        boolean owned; // Added by us; foreground torrents are measured, never removed
+        long addedAt;
+
+        long metadataMs = -1;
+        int headPiece = -1;
+        int peers;
+        double availability;
+        int peakRate;
+        long startBytes = -1;
+        long headBytes;
+        double score;
+    }
+
+    private final SessionManager session;
+    private final File downloadDir;
+    private final ScheduledExecutorService ticker;
+    private final FileIndex fileIndex;
+    private final MetadataPrefetcher prefetcher;
+
+    // A running rankMagnets call; settled exactly once (result, error or shutdown)
+    private static class Race {
+        final List<Candidate> candidates;
+        final Promise promise;
+        ScheduledFuture<?> sampler;
+        boolean settled;
+
+        Race(List<Candidate> candidates, Promise promise) {
+            this.candidates = candidates;
+            this.promise = promise;
+        }
+    }
+
+    // hash -> probe-owned candidate still in the session (running race or kept winner)
+    private final Map<String, Candidate> probing = new HashMap<>();
+    private final List<Race> running = new ArrayList<>();
+
+    private long races = 0;
+    private long candidatesProbed = 0;
+    private long dropped = 0;
+    private long winnersPromoted = 0;
+
+    public SwarmProbe(SessionManager session, File downloadDir, ScheduledExecutorService ticker,
+            FileIndex fileIndex, MetadataPrefetcher prefetcher) {
+        this.session = session;
+        this.downloadDir = downloadDir;
+        this.ticker = ticker;
+        this.fileIndex = fileIndex;
+        this.prefetcher = prefetcher;
+    }
+
+    /**
+     * Probes up to MAX_CANDIDATES magnets for timeBudgetMs and resolves to the
+     * candidates ranked best first: [{ magnet, hash, score, metadataMs, peers,
+     * availability, rate }].
+     */
+    public void rank(String[] magnets, int timeBudgetMs, final Promise promise) {
+        final List<Candidate> race = new ArrayList<>();
+        for (String magnet : magnets) {
+            if (race.size() >= MAX_CANDIDATES)
+                break;
+            Candidate c = start(magnet);
+            if (c != null)
+                race.add(c);
+        }
+        synchronized (this) {
+            races++;
+            candidatesProbed += race.size();
+        }
+
+        final long deadline = System.currentTimeMillis()
+                + Math.max(MIN_BUDGET_MS, Math.min(MAX_BUDGET_MS, timeBudgetMs));
+        final Race r = new Race(race, promise);
+        synchronized (this) {
+            running.add(r);
+            r.sampler = ticker.scheduleWithFixedDelay(() -> {
+                try {
+                    for (Candidate c : race)
+                        sample(c);
+                    if (System.currentTimeMillis() < deadline)
+                        return;
+                    if (settle(r))
+                        promise.resolve(finish(race));
+                } catch (Exception e) {
+                    Log.e(TAG, "Probe Error", e);
+                    if (settle(r))
+                        promise.reject("PROBE_ERROR", e);
+                }
+            }, SAMPLE_MS, SAMPLE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Stops the race's sampler; true for the one caller that gets to settle the promise
+    private synchronized boolean settle(Race r) {
+        if (r.settled)
+            return false;
+        r.settled = true;
+        r.sampler.cancel(false);
+        running.remove(r);
+        return true;
+    }
+
+    /**
+     * Engine stop: the ticker is going away with the samplers, so every running race
+     * is rejected here instead of leaving rankMagnets pending forever.
+     */
+    public void shutdown() {
+        List<Race> races;
+        synchronized (this) {
+            races = new ArrayList<>(running);
+        }
+        for (Race r : races) {
+            if (settle(r))
+                r.promise.reject("ENGINE_OFF", "Engine stopped during probe");
+        }
+    }
+
+    private Candidate start(String magnet) {
+        String hash = TorrentModule.hashFromMagnet(magnet);
+        if (hash == null)
+            return null;
+        Candidate c = new Candidate();
+        c.magnet = magnet;
+        c.hash = hash;
+        c.addedAt = System.currentTimeMillis();
+
+        try {
+            // Warmed by the prefetcher: take it over (ours to drop). Anything else already
+            // in the session is a foreground torrent: measure only. A parked torrent is
+            // raced from its resume data like a new one and stays parked (no revive).
+            c.owned = prefetcher != null && prefetcher.promote(hash);
+            TorrentHandle live = TorrentModule.liveHandle(session, hash);
+
+            if (live == null) {
+                // Parked resume data is shared with revive: limits go on the handle below
+                AddTorrentParams params = TorrentModule.parkedParams(hash);
+                if (params == null) {
+                    params = AddTorrentParams.parseMagnetUri(magnet);
+                    params.setSavePath(downloadDir.getAbsolutePath());
+                }
+
+                error_code ec = new error_code();
+                torrent_handle h = session.swig().add_torrent(params.swig(), ec);
+                if (ec.value() != 0 || h == null || !h.is_valid()) {
+                    Log.e(TAG, "Probe add error: " + ec.message());
+                    return null;
+                }
+                live = new TorrentHandle(h);
+                c.owned = true;
+            }
+            c.th = live;
+            if (c.owned) {
+                live.swig().set_max_connections(PROBE_CONNECTIONS);
+                live.swig().set_max_uploads(1);
+                live.unsetFlags(TorrentFlags.AUTO_MANAGED); // Don't queue behind the stream
+                live.resume();
+                synchronized (this) {
+                    probing.put(hash, c);
+                }
+            }
+            return c;
+        } catch (Exception e) {
+            Log.e(TAG, "Probe Start Error", e);
+            return null;
+        }
+    }
+
+    private void sample(Candidate c) {
+        if (c.th == null || !c.th.isValid())
+            return;
+        TorrentStatus status = c.th.status();
+        c.peers = Math.max(c.peers, status.numPeers());
+        c.peakRate = Math.max(c.peakRate, status.downloadPayloadRate());
+        long total = status.swig().getTotal_payload_download();
+        if (c.startBytes < 0)
+            c.startBytes = total;
+        c.headBytes = total - c.startBytes;
+
+        if (!status.hasMetadata())
+            return;
+        if (c.metadataMs < 0) {
+            c.metadataMs = System.currentTimeMillis() - c.addedAt;
+            focusHead(c);
+        }
+        if (c.headPiece >= 0) {
+            int[] avail = c.th.pieceAvailability();
+            if (avail != null && avail.length > 0) {
+                int end = Math.min(avail.length, c.headPiece + HEAD_PIECES);
+                int min = Integer.MAX_VALUE;
+                for (int p = c.headPiece; p < end; p++)
+                    min = Math.min(min, avail[p]);
+                c.availability = min == Integer.MAX_VALUE ? 0 : min;
+            }
+        }
+    }
+
+    // Only the best video is wanted, its first pieces first
+    private void focusHead(Candidate c) {
+        int best = fileIndex.bestVideo(c.th);
+        TorrentInfo ti = c.th.torrentFile();
+        if (best < 0 || ti == null)
+            return;
+        c.headPiece = (int) (ti.files().fileOffset(best) / ti.pieceLength());
+        if (!c.owned)
+            return; // Foreground torrent already has its own schedule
+        Priority[] priorities = new Priority[ti.files().numFiles()];
+        Arrays.fill(priorities, Priority.IGNORE);
+        priorities[best] = Priority.DEFAULT;
+        c.th.prioritizeFiles(priorities);
+        int last = Math.min(ti.numPieces() - 1, c.headPiece + HEAD_PIECES - 1);
+        for (int p = c.headPiece; p <= last; p++)
+            c.th.setPieceDeadline(p, HEAD_DEADLINE_MS);
+    }
+
+    /**
+     * Score: early payload rate, plus credit for seeders of the head pieces and
+     * connected peers, minus time to metadata. Without metadata a candidate can't
+     * be streamed at all and sorts last.
+     */
+    private static double score(Candidate c, long elapsedMs) {
+        if (c.metadataMs < 0)
+            return -1;
+        double rate = elapsedMs > 0 ? c.headBytes * 1000.0 / elapsedMs : 0;
+        rate = Math.max(rate, c.peakRate * 0.5);
+        return rate + 64 * 1024 * Math.min(c.availability, 10) + 16 * 1024 * Math.min(c.peers, 50)
+                - 32 * 1024 * (c.metadataMs / 1000.0);
+    }
+
+    private WritableArray finish(List<Candidate> race) {
+        long now = System.currentTimeMillis();
+        for (Candidate c : race)
+            c.score = score(c, now - c.addedAt);
+        List<Candidate> ranked = new ArrayList<>(race);
+        Collections.sort(ranked, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate a, Candidate b) {
+                return Double.compare(b.score, a.score);
+            }
+        });
+
+        WritableArray result = Arguments.createArray();
+        for (int i = 0; i < ranked.size(); i++) {
+            Candidate c = ranked.get(i);
+            WritableMap map = Arguments.createMap();
+            map.putString("magnet", c.magnet);
+            map.putString("hash", c.hash);
+            map.putDouble("score", c.score);
+            map.putDouble("metadataMs", (double) c.metadataMs);
+            map.putInt("peers", c.peers);
+            map.putDouble("availability", c.availability);
+            map.putInt("rate", (int) (c.headBytes * 1000 / Math.max(1, now - c.addedAt)));
+            result.pushMap(map);
+
+            if (i == 0 && c.score >= 0) {
+                if (c.owned)
+                    ticker.schedule(() -> drop(c.hash), KEEP_WINNER_MS, TimeUnit.MILLISECONDS); // Nobody pressed play
+            } else if (c.owned) {
+                drop(c.hash); // Loser
+            }
+        }
+        Log.d(TAG, "Ranked " + ranked.size() + " candidates");
+        return result;
+    }
+
+    private void drop(String hash) {
+        Candidate c;
+        synchronized (this) {
+            c = probing.remove(hash);
+            if (c == null)
+                return;
+            dropped++;
+        }
+        try {
+            if (c.th.isValid())
+                session.swig().remove_torrent(c.th.swig());
+        } catch (Exception e) {
+            Log.e(TAG, "Drop Error", e);
+        }
+    }
+
+    /**
+     * Called from addMagnet: a probed winner becomes a normal foreground torrent.
+     * Returns true when the caller must not add it again.
+     */
+    public boolean promote(String hash) {
+        Candidate c;
+        synchronized (this) {
+            c = probing.remove(hash);
+            if (c == null)
+                return false;
+            winnersPromoted++;
+        }
+        TorrentHandle th = c.th;
+        if (!th.isValid())
+            return false;
+
+        th.clearPieceDeadlines(); // Head deadlines from focusHead
+        TorrentModule.restoreForeground(th);
+        Log.d(TAG, "Promoted probe winner: " + hash);
+        return true;
+    }
+
+    public synchronized boolean isProbing(String hash) {
+        return probing.containsKey(hash);
+    }
+
+    public synchronized WritableMap toMetrics() {
+        WritableMap map = Arguments.createMap();
+        map.putInt("live", probing.size());
+        map.putDouble("races", (double) races);
+        map.putDouble("candidates", (double) candidatesProbed);
+        map.putDouble("dropped", (double) dropped);
+        map.putDouble("winnersPromoted", (double) winnersPromoted);
+        return map;
+    }
+}
@@ -1,12 +1,16 @@
 package com.ottbrowser;
 
 import android.util.Log;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
 import fi.iki.elonen.NanoHTTPD;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.libtorrent4j.SessionManager; // Corrected import
 import org.libtorrent4j.Sha1Hash; // Added import for Sha1Hash
 import org.libtorrent4j.TorrentHandle; // Added import for TorrentHandle
@@ -19,21 +23,135 @@ public class TorrentHttpServer extends NanoHTTPD {
     private File rootDir;
     private volatile String targetHash;
     private String authToken;
+    private final UploadThrottle uploadThrottle;
+    private final SeekDebouncer seekDebouncer;
+    private final PieceCache pieceCache;
+    private final WebSeed webSeed;
+    private final FileIndex fileIndex;
+    private final PeerQuality peerQuality;
+
+    // Engine metrics: 503s are our stall signal
+    private final AtomicLong rangeRequests = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    // Reader roles (see SharedFileStream)
+    private final AtomicLong mainRequests = new AtomicLong();
+    private final AtomicLong probeRequests = new AtomicLong();
+    private final AtomicLong probeDeadlines = new AtomicLong();
+
+    // A probe only gets one relaxed deadline, never the main window
+    private static final int PROBE_DEADLINE_MS = 5000;
+    // Main reader re-plans its window every few pieces as it advances
+    private static final int REPLAN_PIECES = 4;
+    private static final int MAX_WINDOW_PIECES = 64;
 
     // Helper Class to hold Context
     private static class VideoContext {
+        String hash;
         File file;
         TorrentHandle th;
         TorrentInfo ti;
         int fileIndex;
         long fileTotalOffset; // Byte offset where this file starts in the torrent
+
+        // Cached per-file metadata (HEAD / conditional fast path)
+        long length;
+        String mime;
+        String etag;
+        long traceId; // StreamTrace.id(hash, fileIndex)
+
+        // Shared by every reader of this file
+        SharedFileStream stream;
+        volatile long lastUsedMs;
     }
 
-    public TorrentHttpServer(int port, SessionManager session, File rootDir, String authToken) {
+    // A context nobody has asked for (and no reader holds) this long gives back its fd
+    private static final long CONTEXT_IDLE_MS = 60_000;
+
+    // "hash/index" -> resolved context, so probes skip the handle scan
+    private final Map<String, VideoContext> contextCache = new ConcurrentHashMap<>();
+
+    public TorrentHttpServer(int port, SessionManager session, File rootDir, String authToken,
+            UploadThrottle uploadThrottle, SeekDebouncer seekDebouncer, PieceCache pieceCache,
+            WebSeed webSeed, FileIndex fileIndex, PeerQuality peerQuality) {
         super("127.0.0.1", port); // BIND TO LOCALHOST ONLY
         this.session = session;
         this.rootDir = rootDir;
         this.authToken = authToken;
+        this.uploadThrottle = uploadThrottle;
+        this.seekDebouncer = seekDebouncer;
+        this.pieceCache = pieceCache;
+        this.webSeed = webSeed;
+        this.fileIndex = fileIndex;
+        this.peerQuality = peerQuality;
+    }
+
+    public long getRangeRequestCount() {
+        return rangeRequests.get();
+    }
+
+    public long getStallCount() {
+        return stalls.get();
+    }
+
+    public WritableMap getStreamMetrics() {
+        WritableMap map = Arguments.createMap();
+        int readers = 0;
+        int regions = 0;
+        for (VideoContext ctx : contextCache.values()) {
+            readers += ctx.stream.readerCount();
+            regions += ctx.stream.mappedRegionCount();
+        }
+        map.putInt("openReaders", readers);
+        map.putInt("mappedRegions", regions);
+        map.putDouble("mappedBytes", (double) SharedFileStream.getMappedBytes());
+        map.putDouble("mappedReads", (double) SharedFileStream.getMappedReads());
+        map.putDouble("mainRequests", (double) mainRequests.get());
+        map.putDouble("probeRequests", (double) probeRequests.get());
+        map.putDouble("probeDeadlines", (double) probeDeadlines.get());
+        return map;
+    }
+
+    public boolean hasOpenReaders(String hash) {
+        String h = hash.toLowerCase();
+        for (VideoContext ctx : contextCache.values()) {
+            if (ctx.hash.equals(h) && ctx.stream.readerCount() > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drops contexts whose torrent is gone (lifecycle removed it) or that had no
+     * reader and no request for CONTEXT_IDLE_MS, closing their file. Runs on the
+     * engine ticker.
+     */
+    public void sweepContexts() {
+        try {
+            long now = System.currentTimeMillis();
+            synchronized (contextCache) {
+                Iterator<VideoContext> it = contextCache.values().iterator();
+                while (it.hasNext()) {
+                    VideoContext ctx = it.next();
+                    boolean idle = ctx.stream.readerCount() == 0 && now - ctx.lastUsedMs > CONTEXT_IDLE_MS;
+                    if (idle || !ctx.th.isValid()) {
+                        it.remove();
+                        ctx.stream.release();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Sweep Error", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        synchronized (contextCache) {
+            for (VideoContext ctx : contextCache.values())
+                ctx.stream.release();
+            contextCache.clear();
+        }
     }
 
     public void setTargetHash(String hash) {
@@ -52,6 +170,18 @@ public class TorrentHttpServer extends NanoHTTPD {
             return newFixedLengthResponse(Response.Status.FORBIDDEN, NanoHTTPD.MIME_PLAINTEXT, "Forbidden");
         }
 
+        // Debug: binary trace dump (decode with StreamTrace.main)
+        if (uri.equals("/debug/trace")) {
+            try {
+                byte[] trace = StreamTrace.dumpBytes();
+                return newFixedLengthResponse(Response.Status.OK, "application/octet-stream",
+                        new java.io.ByteArrayInputStream(trace), trace.length);
+            } catch (IOException e) {
+                return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, NanoHTTPD.MIME_PLAINTEXT,
+                        e.getMessage());
+            }
+        }
+
         // API: /stream/<HASH>/<INDEX>
         String targetHash = null;
         int fileIndex = -1;
@@ -79,15 +209,181 @@ public class TorrentHttpServer extends NanoHTTPD {
                     "Invalid Stream URL. Use /stream/<HASH>/<INDEX>");
         }
 
-        // 2. Resolve File & Context
-        VideoContext ctx = resolveVideoContext(targetHash, fileIndex);
-        if (ctx == null || !ctx.file.exists()) {
+        // 2. Resolve File & Context (cached after first hit)
+        VideoContext ctx = cachedVideoContext(targetHash, fileIndex);
+        if (ctx == null) {
+            return newFixedLengthResponse(Response.Status.NOT_FOUND, NanoHTTPD.MIME_PLAINTEXT,
+                    "File Not Found (or Metadata missing)");
+        }
+
+        // 3. Fast paths: answered from metadata, no file open, no scheduling
+        Map<String, String> headers = session.getHeaders();
+        String ifNoneMatch = headers.get("if-none-match");
+        if (ifNoneMatch != null && etagMatches(ifNoneMatch, ctx.etag)) {
+            Response notModified = newFixedLengthResponse(Response.Status.NOT_MODIFIED, ctx.mime, "");
+            notModified.addHeader("ETag", ctx.etag);
+            return notModified;
+        }
+        if (session.getMethod() == Method.HEAD) {
+            return serveHead(ctx, headers);
+        }
+        if (!ctx.file.exists()) {
             return newFixedLengthResponse(Response.Status.NOT_FOUND, NanoHTTPD.MIME_PLAINTEXT,
                     "File Not Found (or Metadata missing)");
         }
 
-        // 3. Serve with Brain
-        return serveFile(ctx, session.getHeaders());
+        // 4. Serve with Brain
+        return serveFile(ctx, headers);
+    }
+
+    private VideoContext cachedVideoContext(String hash, int fileIndex) {
+        String key = hash.toLowerCase() + "/" + fileIndex;
+        VideoContext ctx = contextCache.get(key);
+        if (ctx != null && ctx.th.isValid()) {
+            ctx.lastUsedMs = System.currentTimeMillis();
+            TorrentModule.touch(ctx.hash); // Keep idle eviction away from the live stream
+            return ctx;
+        }
+
+        // Miss: resolve under the lock, so the probe + main opening a new file at
+        // playback start end up in the same SharedFileStream (compute() is API 24+)
+        synchronized (contextCache) {
+            ctx = contextCache.get(key);
+            if (ctx != null && ctx.th.isValid()) {
+                ctx.lastUsedMs = System.currentTimeMillis();
+                TorrentModule.touch(ctx.hash);
+                return ctx;
+            }
+            return resolveAndCache(key, hash, fileIndex);
+        }
+    }
+
+    // Caller holds the contextCache lock
+    private VideoContext resolveAndCache(String key, String hash, int fileIndex) {
+        VideoContext ctx = resolveVideoContext(hash, fileIndex);
+        if (ctx == null) {
+            VideoContext stale = contextCache.remove(key);
+            if (stale != null)
+                stale.stream.release();
+            return null;
+        }
+        ctx.length = ctx.ti.files().fileSize(ctx.fileIndex);
+        ctx.mime = mimeFor(ctx.file.getName());
+        // Stable across restarts and file growth: content is fixed by the info hash
+        ctx.etag = "\"" + ctx.hash + "-" + ctx.fileIndex + "\"";
+        ctx.traceId = StreamTrace.id(ctx.hash, ctx.fileIndex);
+        ctx.stream = new SharedFileStream(ctx.file, ctx.length, ctx.fileTotalOffset, ctx.ti.pieceLength());
+        ctx.lastUsedMs = System.currentTimeMillis();
+        VideoContext stale = contextCache.put(key, ctx);
+        if (stale != null)
+            stale.stream.release(); // Only reached with an invalid handle (evicted / re-added)
+        return ctx;
+    }
+
+    private static String mimeFor(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(".mkv"))
+            return "video/x-matroska";
+        if (name.endsWith(".avi"))
+            return "video/x-msvideo";
+        if (name.endsWith(".webm"))
+            return "video/webm";
+        return "video/mp4"; // Default
+    }
+
+    private static boolean etagMatches(String header, String etag) {
+        if (header.trim().equals("*"))
+            return true;
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if (tag.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    // RFC 7233: If-Range uses the strong comparison, a weak tag (or a date) never matches
+    static boolean ifRangeMatches(String header, String etag) {
+        String tag = header.trim();
+        return !tag.startsWith("W/") && tag.equals(etag);
+    }
+
+    /**
+     * Parses a single "bytes=" range against the file length.
+     * Supports "N-M", open-ended "N-" and suffix "-N". Returns {start, end} (end
+     * inclusive), null when there is no usable range (serve whole file; this includes
+     * syntactically invalid ones like "500-100") or {-1, -1} when the range is
+     * unsatisfiable.
+     */
+    static long[] parseRange(String range, long length) {
+        if (range == null || !range.startsWith("bytes="))
+            return null;
+        String spec = range.substring("bytes=".length()).trim();
+        int comma = spec.indexOf(',');
+        if (comma >= 0)
+            spec = spec.substring(0, comma).trim(); // Multi-range: first one only
+        int minus = spec.indexOf('-');
+        if (minus < 0)
+            return null;
+
+        try {
+            String first = spec.substring(0, minus).trim();
+            String last = spec.substring(minus + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix: last N bytes
+                if (last.isEmpty())
+                    return null;
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0)
+                    return new long[] { -1, -1 };
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                if (last.isEmpty()) {
+                    end = length - 1;
+                } else {
+                    long lastByte = Long.parseLong(last);
+                    if (lastByte < start)
+                        return null; // Invalid spec: ignore the header, not a 416
+                    end = Math.min(lastByte, length - 1);
+                }
+            }
+            if (start >= length || end < start)
+                return new long[] { -1, -1 };
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Response serveHead(VideoContext ctx, Map<String, String> header) {
+        long[] range = parseRange(header.get("range"), ctx.length);
+        Response res;
+        if (range == null) {
+            res = newFixedLengthResponse(Response.Status.OK, ctx.mime, null, 0);
+            res.addHeader("Content-Length", "" + ctx.length);
+        } else if (range[0] < 0) {
+            return rangeNotSatisfiable(ctx);
+        } else {
+            res = newFixedLengthResponse(Response.Status.PARTIAL_CONTENT, ctx.mime, null, 0);
+            res.addHeader("Content-Length", "" + (range[1] - range[0] + 1));
+            res.addHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + ctx.length);
+        }
+        res.addHeader("Accept-Ranges", "bytes");
+        res.addHeader("ETag", ctx.etag);
+        return res;
+    }
+
+    private Response rangeNotSatisfiable(VideoContext ctx) {
+        Response res = newFixedLengthResponse(Response.Status.RANGE_NOT_SATISFIABLE, NanoHTTPD.MIME_PLAINTEXT, "");
+        res.addHeader("Content-Range", "bytes */" + ctx.length);
+        res.addHeader("ETag", ctx.etag);
+        return res;
     }
 
     private VideoContext resolveVideoContext(String hash, int strictIndex) {
@@ -97,55 +393,38 @@ public class TorrentHttpServer extends NanoHTTPD {
             return null;
 
         try {
-            org.libtorrent4j.swig.torrent_handle_vector v = this.session.swig().get_torrents();
-            long size = v.size();
-            for (long i = 0; i < size; i++) {
-                org.libtorrent4j.swig.torrent_handle th_swig = v.get((int) i);
-                if (th_swig.is_valid()) {
-                    String h = th_swig.info_hash().to_hex();
-                    if (h.equalsIgnoreCase(hash)) {
-                        TorrentHandle th = new TorrentHandle(th_swig);
-                        TorrentInfo ti = th.torrentFile();
-                        if (ti != null) {
-                            org.libtorrent4j.FileStorage fs = ti.files();
-                            int numFiles = fs.numFiles();
-
-                            // STRICT MODE: If index provided, use it.
-                            if (strictIndex >= 0 && strictIndex < numFiles) {
-                                VideoContext ctx = new VideoContext();
-                                ctx.th = th;
-                                ctx.ti = ti;
-                                ctx.fileIndex = strictIndex;
-                                ctx.file = new File(this.rootDir, fs.filePath(strictIndex));
-                                ctx.fileTotalOffset = fs.fileOffset(strictIndex);
-                                return ctx;
-                            }
-
-                            // LEGACY FALLBACK (Only if strictIndex == -1, e.g. from old code)
-                            if (strictIndex == -1) {
-                                // HEURISTIC: Find Largest Video File
-                                long maxSize = -1;
-                                int bestIndex = -1;
-                                for (int j = 0; j < numFiles; j++) {
-                                    long fSize = fs.fileSize(j);
-                                    if (fSize > maxSize) {
-                                        String name = fs.fileName(j).toLowerCase();
-                                        if (name.endsWith(".mp4") || name.endsWith(".mkv") || name.endsWith(".avi")) {
-                                            maxSize = fSize;
-                                            bestIndex = j;
-                                        }
-                                    }
-                                }
-                                if (bestIndex != -1) {
-                                    VideoContext ctx = new VideoContext();
-                                    ctx.th = th;
-                                    ctx.ti = ti;
-                                    ctx.fileIndex = bestIndex;
-                                    ctx.file = new File(this.rootDir, fs.filePath(bestIndex));
-                                    ctx.fileTotalOffset = fs.fileOffset(bestIndex);
-                                    return ctx;
-                                }
-                            }
+            TorrentHandle th = TorrentModule.findHandle(this.session, hash);
+            if (th != null) {
+                TorrentInfo ti = th.torrentFile();
+                if (ti != null) {
+                    org.libtorrent4j.FileStorage fs = ti.files();
+                    int numFiles = fs.numFiles();
+
+                    // STRICT MODE: If index provided, use it.
+                    if (strictIndex >= 0 && strictIndex < numFiles) {
+                        VideoContext ctx = new VideoContext();
+                        ctx.hash = hash.toLowerCase();
+                        ctx.th = th;
+                        ctx.ti = ti;
+                        ctx.fileIndex = strictIndex;
+                        ctx.file = new File(this.rootDir, fs.filePath(strictIndex));
+                        ctx.fileTotalOffset = fs.fileOffset(strictIndex);
+                        return ctx;
+                    }
+
+                    // LEGACY FALLBACK (Only if strictIndex == -1, e.g. from old code)
+                    if (strictIndex == -1) {
+                        // HEURISTIC: Largest Video File (precomputed by the file index)
+                        int bestIndex = fileIndex.bestVideo(th);
+                        if (bestIndex != -1) {
+                            VideoContext ctx = new VideoContext();
+                            ctx.hash = hash.toLowerCase();
+                            ctx.th = th;
+                            ctx.ti = ti;
+                            ctx.fileIndex = bestIndex;
+                            ctx.file = new File(this.rootDir, fs.filePath(bestIndex));
+                            ctx.fileTotalOffset = fs.fileOffset(bestIndex);
+                            return ctx;
                         }
                     }
                 }
@@ -159,40 +438,56 @@ public class TorrentHttpServer extends NanoHTTPD {
     private Response serveFile(VideoContext ctx, Map<String, String> header) {
         File file = ctx.file;
         Response res;
-        String mime = "video/mp4"; // Default
-        String name = file.getName().toLowerCase();
-        if (name.endsWith(".mkv"))
-            mime = "video/x-matroska";
+        String mime = ctx.mime;
 
         try {
-            String etag = Integer
-                    .toHexString((file.getAbsolutePath() + file.lastModified() + "" + file.length()).hashCode());
-            long startFrom = 0;
-            long endAt = -1;
-            String range = header.get("range");
-
-            if (range != null && range.startsWith("bytes=")) {
-                range = range.substring("bytes=".length());
-                int minus = range.indexOf('-');
-                try {
-                    if (minus > 0) {
-                        startFrom = Long.parseLong(range.substring(0, minus));
-                        endAt = Long.parseLong(range.substring(minus + 1));
-                    }
-                } catch (NumberFormatException ignored) {
-                }
-            }
+            String etag = ctx.etag;
+            long fileLen = ctx.length;
+            String rangeHeader = header.get("range");
+
+            // If-Range with a stale validator means "send me the whole thing"
+            String ifRange = header.get("if-range");
+            if (rangeHeader != null && ifRange != null && !ifRangeMatches(ifRange, etag))
+                rangeHeader = null;
+
+            long[] range = parseRange(rangeHeader, fileLen);
+            if (range != null && range[0] < 0)
+                return rangeNotSatisfiable(ctx);
+
+            boolean partial = range != null;
+            long startFrom = partial ? range[0] : 0;
+            long endAt = partial ? range[1] : fileLen - 1;
+            // Open-ended requests keep the default look-ahead window
+            boolean openEnded = !partial || rangeHeader.trim().endsWith("-");
+            StreamTrace.record(StreamTrace.RANGE_IN, ctx.traceId, startFrom, openEnded ? -1 : endAt);
 
             // 503 BRAIN CHECK: Is the piece ready?
             // Calculate absolute byte offset in the torrent
             long absoluteByteOffset = ctx.fileTotalOffset + startFrom;
             int pieceIndex = (int) (absoluteByteOffset / ctx.ti.pieceLength());
+            rangeRequests.incrementAndGet();
+
+            // Only the playback reader moves the playhead; header/cue probes must not
+            // drag the window (or count as seeks)
+            boolean isMain = ctx.stream.isMainRequest(startFrom, endAt, openEnded);
+            if (isMain) {
+                mainRequests.incrementAndGet();
+                focus(ctx, pieceIndex);
+            } else {
+                probeRequests.incrementAndGet();
+            }
 
             // Allow a small buffer (check strict piece availability)
             // If the piece is NOT downloaded, return 503 to force ExoPlayer to retry
             // instead of reading garbage zeros/EOF.
             if (!ctx.th.havePiece(pieceIndex)) {
                 // Log.w(TAG, "Brain: 503 - Piece " + pieceIndex + " NOT READY. Waiting...");
+                if (isMain)
+                    schedulePieces(ctx, startFrom, openEnded ? -1 : endAt);
+                else
+                    scheduleProbe(ctx, pieceIndex);
+                stalls.incrementAndGet();
+                StreamTrace.record(StreamTrace.STALL_503, ctx.traceId, pieceIndex, 0);
                 Response retry = newFixedLengthResponse(Response.Status.SERVICE_UNAVAILABLE, NanoHTTPD.MIME_PLAINTEXT,
                         "Buffering...");
                 retry.addHeader("Retry-After", "1"); // Retry in 1 second
@@ -200,76 +495,189 @@ public class TorrentHttpServer extends NanoHTTPD {
             }
 
             // Schedule Priorities for this request (The Brain)
-            schedulePieces(ctx.th, ctx.ti, ctx.fileIndex, ctx.fileTotalOffset, startFrom, endAt);
+            if (isMain)
+                schedulePieces(ctx, startFrom, openEnded ? -1 : endAt);
 
-            long fileLen = file.length();
-            if (endAt < 0) {
-                endAt = fileLen - 1;
-            }
             long newLen = endAt - startFrom + 1;
             if (newLen < 0) {
                 newLen = 0;
             }
 
             final long finalLen = newLen;
-            FileInputStream fis = new FileInputStream(file) {
-                @Override
-                public int available() throws IOException {
-                    // This is a hack for NanoHTTPD's internal handling of available()
-                    // It expects available() to return the number of bytes that can be read
-                    // without blocking. For a FileInputStream, this is usually the remaining
-                    // bytes in the stream. We want it to reflect the 'newLen' for the partial
-                    // content.
-                    // However, this might not be strictly correct for all scenarios,
-                    // especially if the underlying file is still being written to.
-                    // For streaming, we want to tell NanoHTTPD how much we *intend* to serve.
-                    return (int) finalLen;
-                }
-            };
-            fis.skip(startFrom);
+            InputStream fis = new PieceStream(ctx, ctx.stream.open(startFrom, isMain), startFrom, finalLen);
 
-            res = newFixedLengthResponse(Response.Status.PARTIAL_CONTENT, mime, fis, finalLen);
+            res = newFixedLengthResponse(partial ? Response.Status.PARTIAL_CONTENT : Response.Status.OK, mime, fis,
+                    finalLen);
             res.addHeader("Accept-Ranges", "bytes");
             res.addHeader("Content-Length", "" + finalLen);
-            res.addHeader("Content-Range", "bytes " + startFrom + "-" + endAt + "/" + fileLen);
+            if (partial)
+                res.addHeader("Content-Range", "bytes " + startFrom + "-" + endAt + "/" + fileLen);
             res.addHeader("ETag", etag);
-        } catch (IOException e) {
+            StreamTrace.record(StreamTrace.RANGE_OUT, ctx.traceId, partial ? 206 : 200, finalLen);
+        } catch (Exception e) {
             res = newFixedLengthResponse(Response.Status.FORBIDDEN, NanoHTTPD.MIME_PLAINTEXT, e.getMessage());
         }
 
         return res;
     }
 
-    private void schedulePieces(TorrentHandle th, TorrentInfo ti, int fileIndex, long fileOffset, long startByte,
-            long endByte) {
+    private void focus(VideoContext ctx, int piece) {
+        updatePlayhead(ctx, piece);
+        pieceCache.setFocus(ctx.hash, piece, ctx.ti.pieceLength());
+        webSeed.setFocus(ctx.hash, ctx.th, piece);
+        peerQuality.setFocus(ctx.hash, piece);
+    }
+
+    private void updatePlayhead(VideoContext ctx, int piece) {
+        if (uploadThrottle != null) {
+            int lastPiece = (int) ((ctx.fileTotalOffset + ctx.length - 1) / ctx.ti.pieceLength());
+            uploadThrottle.updatePlayhead(ctx.th, piece, lastPiece);
+        }
+    }
+
+    // Relaxed single-piece deadline, skipped when the main window already covers it
+    private void scheduleProbe(VideoContext ctx, int piece) {
+        int mainPiece = ctx.stream.mainPiece();
+        if (mainPiece >= 0 && piece >= mainPiece && piece < mainPiece + MAX_WINDOW_PIECES)
+            return;
+        try {
+            ctx.th.setPieceDeadline(piece, PROBE_DEADLINE_MS);
+            probeDeadlines.incrementAndGet();
+            StreamTrace.record(StreamTrace.DEADLINE, ctx.traceId, piece, piece);
+        } catch (Exception e) {
+            Log.e(TAG, "Probe Deadline Error", e);
+        }
+    }
+
+    /**
+     * Range body reader: pieces still held in memory (fresh from read_piece) are
+     * copied from the buffer, everything else is read through the file's shared
+     * channel. The main reader re-plans its deadline window as it advances.
+     */
+    private class PieceStream extends InputStream {
+        private static final long MEMORY_WAIT_MS = 300;
+
+        private final VideoContext ctx;
+        private final SharedFileStream.Reader reader;
+        private final int pieceLength;
+        private long position;
+        private long remaining;
+        private boolean first = true;
+        private boolean closed = false;
+        private int lastPiece = -1;
+        // Read latency summed over the range, traced once on close
+        private long diskMicros, diskBytes, mappedMicros, mappedBytes;
+
+        PieceStream(VideoContext ctx, SharedFileStream.Reader reader, long start, long length) {
+            this.ctx = ctx;
+            this.reader = reader;
+            this.reader.lastPlannedPiece = ctx.stream.pieceOf(start);
+            this.pieceLength = ctx.ti.pieceLength();
+            this.position = start;
+            this.remaining = length;
+        }
+
+        @Override
+        public int available() {
+            // NanoHTTPD hack: report how much we *intend* to serve for this range
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n <= 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (remaining <= 0)
+                return -1;
+            len = (int) Math.min(len, remaining);
+
+            long absolute = ctx.fileTotalOffset + position;
+            int piece = (int) (absolute / pieceLength);
+            int inPiece = (int) (absolute - (long) piece * pieceLength);
+
+            if (reader.main && piece >= reader.lastPlannedPiece + REPLAN_PIECES && ctx.stream.isCurrentMain(reader)) {
+                reader.lastPlannedPiece = piece;
+                focus(ctx, piece);
+                schedulePieces(ctx, position, -1);
+                ctx.stream.trimBehindMain();
+            } else if (reader.main && piece != lastPiece) {
+                // One long connection: buffer health follows the reader, not the range start
+                updatePlayhead(ctx, piece);
+            }
+            if (piece != lastPiece)
+                TorrentModule.touch(ctx.hash); // Long connections never come back through serve()
+            lastPiece = piece;
+
+            int n;
+            boolean fromMemory;
+            byte[] mem = pieceCache.get(ctx.hash, ctx.th, piece, MEMORY_WAIT_MS);
+            if (mem != null && inPiece < mem.length) {
+                n = Math.min(len, mem.length - inPiece);
+                System.arraycopy(mem, inPiece, buf, off, n);
+                fromMemory = true;
+            } else {
+                long t0 = System.nanoTime();
+                // Completed region: copy straight out of the mapping (no read syscall)
+                n = ctx.stream.readMapped(ctx.th::havePiece, position, buf, off, len);
+                if (n > 0) {
+                    mappedMicros += (System.nanoTime() - t0) / 1000;
+                    mappedBytes += n;
+                } else {
+                    n = ctx.stream.read(position, buf, off, len);
+                    if (n <= 0)
+                        return -1;
+                    diskMicros += (System.nanoTime() - t0) / 1000;
+                    diskBytes += n;
+                }
+                fromMemory = false;
+            }
+
+            pieceCache.recordServed(ctx.hash, piece, n, fromMemory, first);
+            first = false;
+            position += n;
+            remaining -= n;
+            reader.position = position;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            ctx.stream.close(reader);
+            if (diskBytes > 0)
+                StreamTrace.record(StreamTrace.DISK_READ, ctx.traceId, diskMicros, diskBytes);
+            if (mappedBytes > 0)
+                StreamTrace.record(StreamTrace.MAPPED_READ, ctx.traceId, mappedMicros, mappedBytes);
+        }
+    }
+
+    private void schedulePieces(VideoContext ctx, long startByte, long endByte) {
         try {
             // "The Brain" - Reactive Piece Scheduling Logic
             if (endByte == -1)
                 endByte = startByte + 10_000_000; // Look ahead 10MB approx
 
-            long absoluteStart = fileOffset + startByte;
-            long absoluteEnd = fileOffset + endByte;
+            long absoluteStart = ctx.fileTotalOffset + startByte;
+            long absoluteEnd = ctx.fileTotalOffset + endByte;
 
-            int pieceLength = ti.pieceLength();
+            int pieceLength = ctx.ti.pieceLength();
             int startPiece = (int) (absoluteStart / pieceLength);
             int endPiece = (int) (absoluteEnd / pieceLength);
 
             // Log.d(TAG, "Brain: Scheduling Pieces " + startPiece + " to " + endPiece);
 
-            int MAX_PIECES = 64;
-            int count = 0;
+            if (endPiece - startPiece >= MAX_WINDOW_PIECES)
+                endPiece = startPiece + MAX_WINDOW_PIECES - 1;
 
-            for (int p = startPiece; p <= endPiece; p++) {
-                if (count >= MAX_PIECES)
-                    break;
-
-                int deadline = 2500; // Default: 2.5s prefetch
-                if (p <= startPiece + 3)
-                    deadline = 800; // Immediate: 800ms
-
-                th.setPieceDeadline(p, deadline);
-                count++;
-            }
+            // Default: 2.5s prefetch, first pieces 800ms (debounced during seek storms)
+            seekDebouncer.request(ctx.hash, ctx.th, startPiece, endPiece, 2500);
         } catch (Exception e) {
             Log.e(TAG, "Brain Error", e);
         }
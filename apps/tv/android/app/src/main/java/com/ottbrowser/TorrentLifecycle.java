@@ -0,0 +1,290 @@
+package com.ottbrowser;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import org.libtorrent4j.AddTorrentParams;
+import org.libtorrent4j.AlertListener;
+import org.libtorrent4j.SessionManager;
+import org.libtorrent4j.TorrentHandle;
+import org.libtorrent4j.TorrentStatus;
+import org.libtorrent4j.alerts.Alert;
+import org.libtorrent4j.alerts.AlertType;
+import org.libtorrent4j.alerts.SaveResumeDataAlert;
+import org.libtorrent4j.alerts.SaveResumeDataFailedAlert;
+import org.libtorrent4j.swig.error_code;
+import org.libtorrent4j.swig.torrent_handle;
+import org.libtorrent4j.swig.torrent_handle_vector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded live torrent set.
+ *
+ * The session used to keep every torrent ever added until stopEngine, each one
+ * seeding, announcing and generating alerts. Every tick we remove torrents that sat
+ * idle longer than the timeout for their state (metadata-only, partial, complete)
+ * and the least recently used ones above maxLive. Removal goes through
+ * save_resume_data (with the info dict), so the next request for that hash re-adds
+ * it transparently without fetching metadata or rechecking files. A torrent a
+ * player still holds a connection to is never idle, and a touch that lands while
+ * its resume data is in flight cancels the eviction.
+ */
+public class TorrentLifecycle implements AlertListener {
+    private static final String TAG = "TorrentLifecycle";
+
+    private static final int MAX_PARKED = 32;
+
+    // Policy (overridable from JS via setLifecyclePolicy)
+    private int maxLive = 4;
+    private long idleMetadataOnlyMs = 3 * 60_000L;
+    private long idlePartialMs = 15 * 60_000L;
+    private long idleCompleteMs = 5 * 60_000L;
+
+    private final SessionManager session;
+    private final MetadataPrefetcher prefetcher;
+    private final SwarmProbe swarmProbe;
+
+    private final Map<String, Long> lastUsed = new HashMap<>();
+    // hash -> when save_resume_data was requested; a touch after that cancels
+    private final Map<String, Long> evicting = new HashMap<>();
+    // Expert: insertion-ordered, oldest resume data dropped first
+    private final LinkedHashMap<String, AddTorrentParams> parked = new LinkedHashMap<String, AddTorrentParams>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AddTorrentParams> eldest) {
+            return size() > MAX_PARKED;
+        }
+    };
+
+    private long evictedIdle = 0;
+    private long evictedOverCap = 0;
+    private long revived = 0;
+
+    public TorrentLifecycle(SessionManager session, MetadataPrefetcher prefetcher, SwarmProbe swarmProbe) {
+        this.session = session;
+        this.prefetcher = prefetcher;
+        this.swarmProbe = swarmProbe;
+    }
+
+    public synchronized void setPolicy(ReadableMap policy) {
+        if (policy.hasKey("maxLive"))
+            maxLive = Math.max(1, policy.getInt("maxLive"));
+        if (policy.hasKey("idleMetadataOnlyMs"))
+            idleMetadataOnlyMs = (long) policy.getDouble("idleMetadataOnlyMs");
+        if (policy.hasKey("idlePartialMs"))
+            idlePartialMs = (long) policy.getDouble("idlePartialMs");
+        if (policy.hasKey("idleCompleteMs"))
+            idleCompleteMs = (long) policy.getDouble("idleCompleteMs");
+    }
+
+    @Override
+    public int[] types() {
+        return new int[] { AlertType.SAVE_RESUME_DATA.swig(), AlertType.SAVE_RESUME_DATA_FAILED.swig() };
+    }
+
+    @Override
+    public void alert(Alert<?> alert) {
+        if (alert instanceof SaveResumeDataFailedAlert) {
+            // Keep it live, next tick will try again
+            String hash = ((SaveResumeDataFailedAlert) alert).handle().swig().info_hash().to_hex().toLowerCase();
+            synchronized (this) {
+                evicting.remove(hash);
+            }
+            return;
+        }
+        if (!(alert instanceof SaveResumeDataAlert))
+            return;
+        try {
+            SaveResumeDataAlert a = (SaveResumeDataAlert) alert;
+            TorrentHandle th = a.handle();
+            String hash = th.swig().info_hash().to_hex().toLowerCase();
+            synchronized (this) {
+                Long started = evicting.remove(hash);
+                if (started == null)
+                    return; // Someone else asked for resume data
+                Long used = lastUsed.get(hash);
+                if ((used != null && used > started) || TorrentModule.isStreaming(hash)) {
+                    Log.d(TAG, "Eviction cancelled, back in use: " + hash);
+                    return;
+                }
+                parked.put(hash, a.params());
+                lastUsed.remove(hash);
+            }
+            session.swig().remove_torrent(th.swig()); // Files stay on disk
+            TorrentModule.onTorrentRemoved(hash);
+            Log.d(TAG, "Parked idle torrent " + hash);
+        } catch (Exception e) {
+            Log.e(TAG, "Alert Error", e);
+        }
+    }
+
+    public synchronized void touch(String hash) {
+        lastUsed.put(hash.toLowerCase(), System.currentTimeMillis());
+    }
+
+    /**
+     * Re-adds a parked torrent from its resume data. Returns null if the hash was
+     * never parked.
+     */
+    public TorrentHandle revive(String hash) {
+        AddTorrentParams params;
+        synchronized (this) {
+            params = parked.remove(hash.toLowerCase());
+        }
+        if (params == null)
+            return null;
+
+        error_code ec = new error_code();
+        torrent_handle h = session.swig().add_torrent(params.swig(), ec);
+        if (ec.value() != 0 || h == null || !h.is_valid()) {
+            Log.e(TAG, "Revive error: " + ec.message());
+            return null;
+        }
+        synchronized (this) {
+            revived++;
+        }
+        touch(hash);
+        Log.d(TAG, "Revived parked torrent " + hash);
+        return new TorrentHandle(h);
+    }
+
+    public synchronized boolean isParked(String hash) {
+        return parked.containsKey(hash.toLowerCase());
+    }
+
+    // Resume data without reviving (the torrent stays parked)
+    public synchronized AddTorrentParams parkedParams(String hash) {
+        return parked.get(hash.toLowerCase());
+    }
+
+    // Someone else re-added it (probe winner promoted): the resume data is stale
+    public synchronized void unpark(String hash) {
+        parked.remove(hash.toLowerCase());
+    }
+
+    public void tick() {
+        if (!session.isRunning())
+            return;
+        try {
+            long now = System.currentTimeMillis();
+            List<TorrentHandle> live = new ArrayList<>();
+            List<String> hashes = new ArrayList<>();
+
+            torrent_handle_vector v = session.swig().get_torrents();
+            long size = v.size();
+            for (long i = 0; i < size; i++) {
+                torrent_handle th_swig = v.get((int) i);
+                if (!th_swig.is_valid())
+                    continue;
+                String hash = th_swig.info_hash().to_hex().toLowerCase();
+                if (prefetcher != null && prefetcher.isSpeculative(hash))
+                    continue; // Prefetcher runs its own LRU
+                if (swarmProbe != null && swarmProbe.isProbing(hash))
+                    continue; // Race in progress / winner kept warm
+                live.add(new TorrentHandle(th_swig));
+                hashes.add(hash);
+            }
+
+            synchronized (this) {
+                Set<String> gone = new HashSet<>();
+                for (String hash : hashes) {
+                    if (evicting.containsKey(hash))
+                        gone.add(hash); // Resume data still in flight
+                    else if (TorrentModule.isStreaming(hash))
+                        lastUsed.put(hash, now); // Open HTTP readers: in use however old the request
+                }
+
+                // 1. Idle timeouts per state
+                for (int i = 0; i < live.size(); i++) {
+                    String hash = hashes.get(i);
+                    if (gone.contains(hash))
+                        continue;
+                    Long used = lastUsed.get(hash);
+                    if (used == null) {
+                        lastUsed.put(hash, now); // First sighting starts the clock
+                        continue;
+                    }
+                    if (now - used > idleTimeoutFor(live.get(i).status())) {
+                        evict(live.get(i), hash);
+                        gone.add(hash);
+                        evictedIdle++;
+                    }
+                }
+
+                // 2. Hard cap: least recently used first
+                while (live.size() - gone.size() > maxLive) {
+                    int lru = -1;
+                    long oldest = Long.MAX_VALUE;
+                    for (int i = 0; i < live.size(); i++) {
+                        String hash = hashes.get(i);
+                        if (gone.contains(hash))
+                            continue;
+                        Long used = lastUsed.get(hash);
+                        long t = used != null ? used : now;
+                        if (t < oldest) {
+                            oldest = t;
+                            lru = i;
+                        }
+                    }
+                    if (lru < 0)
+                        break;
+                    evict(live.get(lru), hashes.get(lru));
+                    gone.add(hashes.get(lru));
+                    evictedOverCap++;
+                }
+
+                // Forget clocks of torrents that are gone
+                Iterator<String> it = lastUsed.keySet().iterator();
+                while (it.hasNext()) {
+                    if (!hashes.contains(it.next()))
+                        it.remove();
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Tick Error", e);
+        }
+    }
+
+    private long idleTimeoutFor(TorrentStatus status) {
+        if (!status.hasMetadata())
+            return idleMetadataOnlyMs;
+        if (status.isFinished())
+            return idleCompleteMs;
+        return idlePartialMs;
+    }
+
+    // Caller holds the lock; removal happens once the resume data arrives
+    private void evict(TorrentHandle th, String hash) {
+        if (!th.status().hasMetadata()) {
+            // Nothing worth resuming: drop it straight away
+            session.swig().remove_torrent(th.swig());
+            TorrentModule.onTorrentRemoved(hash);
+            lastUsed.remove(hash);
+            Log.d(TAG, "Dropped idle metadata-only torrent " + hash);
+            return;
+        }
+        evicting.put(hash, System.currentTimeMillis());
+        th.saveResumeData(TorrentHandle.SAVE_INFO_DICT);
+    }
+
+    public synchronized WritableMap toMetrics() {
+        WritableMap map = Arguments.createMap();
+        map.putInt("live", lastUsed.size());
+        map.putInt("parked", parked.size());
+        map.putInt("maxLive", maxLive);
+        map.putDouble("evictedIdle", (double) evictedIdle);
+        map.putDouble("evictedOverCap", (double) evictedOverCap);
+        map.putDouble("revived", (double) revived);
+        return map;
+    }
+}
@@ -9,6 +9,8 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
 
 import org.libtorrent4j.SessionManager;
 import org.libtorrent4j.SettingsPack;
@@ -19,10 +21,16 @@ import org.libtorrent4j.swig.error_code;
 import org.libtorrent4j.TorrentHandle;
 import org.libtorrent4j.TorrentInfo;
 import org.libtorrent4j.Sha1Hash;
+import org.libtorrent4j.Priority;
+import org.libtorrent4j.TorrentFlags;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.UUID; // Added import
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class TorrentModule extends ReactContextBaseJavaModule {
     private static final String TAG = "TorrentModule";
@@ -30,6 +38,17 @@ public class TorrentModule extends ReactContextBaseJavaModule {
     private static final SessionManager session = new SessionManager();
     private static TorrentHttpServer server;
     private static final int PORT = 8080;
+    private static ScheduledExecutorService ticker;
+    private static UploadThrottle uploadThrottle;
+    private static SeekDebouncer seekDebouncer;
+    private static PieceCache pieceCache;
+    private static WebSeed webSeed;
+    private static MetadataPrefetcher prefetcher;
+    private static TorrentLifecycle lifecycle;
+    private static FileIndex fileIndex;
+    private static SwarmProbe swarmProbe;
+    private static PeerQuality peerQuality;
+    private static String webSeedBase; // e.g. torrent-gateway root, null = swarm only
 
     TorrentModule(ReactApplicationContext context) {
         super(context);
@@ -82,6 +101,32 @@ public class TorrentModule extends ReactContextBaseJavaModule {
 
             session.start(new SessionParams(sp));
 
+            // Engine housekeeping (buffer-health upload governor etc.)
+            uploadThrottle = new UploadThrottle(session);
+            ticker = Executors.newSingleThreadScheduledExecutor();
+            ticker.scheduleWithFixedDelay(uploadThrottle::tick, 1, 1, TimeUnit.SECONDS);
+            seekDebouncer = new SeekDebouncer(ticker);
+            pieceCache = new PieceCache();
+            session.addListener(pieceCache);
+            webSeed = new WebSeed(session);
+            ticker.scheduleWithFixedDelay(webSeed::tick, 250, 250, TimeUnit.MILLISECONDS);
+            prefetcher = new MetadataPrefetcher(session, downloadDir());
+            session.addListener(prefetcher);
+            fileIndex = new FileIndex();
+            session.addListener(fileIndex);
+            swarmProbe = new SwarmProbe(session, downloadDir(), ticker, fileIndex, prefetcher);
+            lifecycle = new TorrentLifecycle(session, prefetcher, swarmProbe);
+            session.addListener(lifecycle);
+            ticker.scheduleWithFixedDelay(lifecycle::tick, 10, 10, TimeUnit.SECONDS);
+            peerQuality = new PeerQuality(session);
+            session.addListener(peerQuality);
+            ticker.scheduleWithFixedDelay(peerQuality::tick, 10, 10, TimeUnit.SECONDS);
+            ticker.scheduleWithFixedDelay(() -> {
+                TorrentHttpServer srv = server;
+                if (srv != null)
+                    srv.sweepContexts(); // Close files of removed / abandoned streams
+            }, 30, 30, TimeUnit.SECONDS);
+
             // Start HTTP Server
             initServer(); 
 
@@ -95,9 +140,40 @@ public class TorrentModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void stopEngine(Promise promise) {
         try {
+            if (swarmProbe != null)
+                swarmProbe.shutdown(); // Before the ticker takes the samplers down
+            if (ticker != null) {
+                ticker.shutdownNow();
+                ticker = null;
+            }
             if (session.isRunning()) {
                 session.stop();
             }
+            if (pieceCache != null) {
+                session.removeListener(pieceCache);
+                pieceCache.clear();
+            }
+            if (webSeed != null) {
+                webSeed.shutdown();
+                webSeed = null;
+            }
+            if (prefetcher != null) {
+                session.removeListener(prefetcher);
+                prefetcher = null;
+            }
+            if (lifecycle != null) {
+                session.removeListener(lifecycle);
+                lifecycle = null;
+            }
+            swarmProbe = null;
+            if (peerQuality != null) {
+                session.removeListener(peerQuality);
+                peerQuality.clear();
+            }
+            if (fileIndex != null) {
+                session.removeListener(fileIndex);
+                fileIndex.clear();
+            }
             if (server != null) {
                 server.stop();
                 server = null;
@@ -116,18 +192,98 @@ public class TorrentModule extends ReactContextBaseJavaModule {
 
     private String authToken; // Store token
 
+    private File downloadDir() {
+        File downloadDir = new File(reactContext.getExternalFilesDir(null), "VibeTorrents");
+        if (!downloadDir.exists())
+            downloadDir.mkdirs();
+        return downloadDir;
+    }
+
+    static String hashFromMagnet(String magnetUrl) {
+        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("xt=urn:btih:([a-fA-F0-9]+)");
+        java.util.regex.Matcher matcher = pattern.matcher(magnetUrl);
+        if (matcher.find()) {
+            return matcher.group(1).toLowerCase();
+        }
+        return null;
+    }
+
+    // Handle lookup; transparently re-adds torrents the lifecycle parked while idle.
+    // Only for callers that are about to use the torrent (playback, addMagnet, UI)
+    static TorrentHandle findHandle(SessionManager session, String hash) {
+        touch(hash);
+        TorrentHandle th = liveHandle(session, hash);
+        if (th != null)
+            return th;
+        TorrentLifecycle lc = lifecycle;
+        return lc != null ? lc.revive(hash) : null;
+    }
+
+    // Plain lookup of a torrent in the session: no touch, no revive
+    static TorrentHandle liveHandle(SessionManager session, String hash) {
+        org.libtorrent4j.swig.torrent_handle_vector v = session.swig().get_torrents();
+        long size = v.size();
+        for (long i = 0; i < size; i++) {
+            org.libtorrent4j.swig.torrent_handle th_swig = v.get((int) i);
+            if (th_swig.is_valid() && th_swig.info_hash().to_hex().equalsIgnoreCase(hash)) {
+                return new TorrentHandle(th_swig);
+            }
+        }
+        return null;
+    }
+
+    // Speculative / probe torrent becomes a normal one: session limits, every file
+    // wanted, back in the auto-managed queue
+    static void restoreForeground(TorrentHandle th) {
+        th.swig().set_max_connections(-1);
+        th.swig().set_max_uploads(-1);
+        TorrentInfo ti = th.torrentFile();
+        if (ti != null) {
+            Priority[] all = new Priority[ti.files().numFiles()];
+            Arrays.fill(all, Priority.DEFAULT);
+            th.prioritizeFiles(all);
+        }
+        th.setFlags(TorrentFlags.AUTO_MANAGED);
+        th.resume();
+    }
+
+    // Resume data of a torrent the lifecycle removed while idle, or null
+    static AddTorrentParams parkedParams(String hash) {
+        TorrentLifecycle lc = lifecycle;
+        return lc != null && hash != null ? lc.parkedParams(hash) : null;
+    }
+
+    // Marks a torrent as in use so idle eviction leaves it alone
+    static void touch(String hash) {
+        TorrentLifecycle lc = lifecycle;
+        if (lc != null && hash != null)
+            lc.touch(hash);
+    }
+
+    // Lifecycle removed it from the session: nothing left to rescue over HTTP
+    static void onTorrentRemoved(String hash) {
+        WebSeed ws = webSeed;
+        if (ws != null && hash != null)
+            ws.detach(hash.toLowerCase());
+    }
+
+    // A player is holding a connection to one of its files right now
+    static boolean isStreaming(String hash) {
+        TorrentHttpServer srv = server;
+        return srv != null && hash != null && srv.hasOpenReaders(hash);
+    }
+
     private void initServer() {
         if (server == null) {
             try {
                 // Ensure dir exists
-                File downloadDir = new File(reactContext.getExternalFilesDir(null), "VibeTorrents");
-                if (!downloadDir.exists())
-                    downloadDir.mkdirs();
+                File downloadDir = downloadDir();
 
                 // Generate Secure Token
                 this.authToken = UUID.randomUUID().toString();
 
-                server = new TorrentHttpServer(PORT, session, downloadDir, this.authToken); // Pass Token
+                server = new TorrentHttpServer(PORT, session, downloadDir, this.authToken, uploadThrottle,
+                        seekDebouncer, pieceCache, webSeed, fileIndex, peerQuality); // Pass Token
                 server.start();
                 Log.d(TAG, "HTTP Server started on port " + PORT);
             } catch (IOException e) {
@@ -145,30 +301,33 @@ public class TorrentModule extends ReactContextBaseJavaModule {
             }
 
             Log.d(TAG, "Adding magnet: " + magnetUrl);
-            File downloadDir = new File(reactContext.getExternalFilesDir(null), "VibeTorrents");
-            if (!downloadDir.exists())
-                downloadDir.mkdirs();
-
-            // Use AddTorrentParams for Magnet
-            AddTorrentParams params = AddTorrentParams.parseMagnetUri(magnetUrl);
-            params.setSavePath(downloadDir.getAbsolutePath());
-            
-            // SUPER-ENGINE: Handled via Brain Pulse (Priority Scheduling)
-
-            // Direct SWIG call
-            error_code ec = new error_code();
-            session.swig().add_torrent(params.swig(), ec);
-
-            if (ec.value() != 0) {
-                Log.e(TAG, "SWIG add_torrent error: " + ec.message());
-            }
+            File downloadDir = downloadDir();
 
             // Extract Hash
-            String hash = null;
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("xt=urn:btih:([a-fA-F0-9]+)");
-            java.util.regex.Matcher matcher = pattern.matcher(magnetUrl);
-            if (matcher.find()) {
-                hash = matcher.group(1).toLowerCase();
+            String hash = hashFromMagnet(magnetUrl);
+
+            // Warmed by prefetchMetadata? Then metadata is already here, just un-park it.
+            // Parked by the lifecycle? Re-add from resume data (no metadata fetch, no recheck).
+            boolean probed = hash != null && swarmProbe != null && swarmProbe.promote(hash);
+            if (probed && lifecycle != null)
+                lifecycle.unpark(hash); // Probe raced it from its resume data
+            boolean reused = probed || (hash != null && ((prefetcher != null && prefetcher.promote(hash))
+                    || (lifecycle != null && lifecycle.revive(hash) != null)));
+            touch(hash);
+            if (!reused) {
+                // Use AddTorrentParams for Magnet
+                AddTorrentParams params = AddTorrentParams.parseMagnetUri(magnetUrl);
+                params.setSavePath(downloadDir.getAbsolutePath());
+
+                // SUPER-ENGINE: Handled via Brain Pulse (Priority Scheduling)
+
+                // Direct SWIG call
+                error_code ec = new error_code();
+                session.swig().add_torrent(params.swig(), ec);
+
+                if (ec.value() != 0) {
+                    Log.e(TAG, "SWIG add_torrent error: " + ec.message());
+                }
             }
 
             if (hash == null) {
@@ -204,6 +363,53 @@ public class TorrentModule extends ReactContextBaseJavaModule {
         }
     }
 
+    @ReactMethod
+    public void prefetchMetadata(ReadableArray magnets, int budget, Promise promise) {
+        // Speculative warm-up (home screen focus): metadata only, capped, LRU evicted
+        try {
+            if (!session.isRunning() || prefetcher == null) {
+                promise.resolve(0);
+                return;
+            }
+            String[] list = new String[magnets.size()];
+            for (int i = 0; i < list.length; i++) {
+                list[i] = magnets.getString(i);
+            }
+            promise.resolve(prefetcher.prefetch(list, budget));
+        } catch (Exception e) {
+            promise.reject("PREFETCH_ERROR", e);
+        }
+    }
+
+    @ReactMethod
+    public void rankMagnets(ReadableArray magnets, int timeBudgetMs, Promise promise) {
+        // Races candidate releases of one title; resolves best first, losers removed
+        try {
+            if (!session.isRunning() || swarmProbe == null) {
+                promise.reject("ENGINE_OFF", "Engine not started");
+                return;
+            }
+            String[] list = new String[magnets.size()];
+            for (int i = 0; i < list.length; i++) {
+                list[i] = magnets.getString(i);
+            }
+            swarmProbe.rank(list, timeBudgetMs, promise);
+        } catch (Exception e) {
+            promise.reject("PROBE_ERROR", e);
+        }
+    }
+
+    @ReactMethod
+    public void setLifecyclePolicy(ReadableMap policy, Promise promise) {
+        // { maxLive, idleMetadataOnlyMs, idlePartialMs, idleCompleteMs }
+        if (lifecycle == null) {
+            promise.reject("ENGINE_OFF", "Engine not started");
+            return;
+        }
+        lifecycle.setPolicy(policy);
+        promise.resolve(true);
+    }
+
     @ReactMethod
     public void getTorrentFiles(String hash, Promise promise) {
         try {
@@ -212,31 +418,19 @@ public class TorrentModule extends ReactContextBaseJavaModule {
                 return;
             }
 
-            org.libtorrent4j.swig.torrent_handle_vector v = session.swig().get_torrents();
-            long size = v.size();
-            for (long i = 0; i < size; i++) {
-                org.libtorrent4j.swig.torrent_handle th_swig = v.get((int) i);
-                if (th_swig.is_valid() && th_swig.info_hash().to_hex().equalsIgnoreCase(hash)) {
-                    TorrentHandle th = new TorrentHandle(th_swig);
-                    if (th.status().hasMetadata()) {
-                        TorrentInfo ti = th.torrentFile();
-                        if (ti != null) {
-                            org.libtorrent4j.FileStorage fs = ti.files();
-                            int numFiles = fs.numFiles();
-                            com.facebook.react.bridge.WritableArray files = com.facebook.react.bridge.Arguments
-                                    .createArray();
-
-                            for (int j = 0; j < numFiles; j++) {
-                                com.facebook.react.bridge.WritableMap fileMap = com.facebook.react.bridge.Arguments
-                                        .createMap();
-                                fileMap.putInt("index", j);
-                                fileMap.putString("name", fs.fileName(j));
-                                fileMap.putDouble("size", (double) fs.fileSize(j));
-                                files.pushMap(fileMap);
-                            }
-                            promise.resolve(files);
-                            return;
+            TorrentHandle th = findHandle(session, hash);
+            if (th != null) {
+                if (th.status().hasMetadata()) {
+                    // Full list in one go; large torrents should page with queryTorrentFiles
+                    FileIndex.Index index = fileIndex.get(th);
+                    if (index != null) {
+                        com.facebook.react.bridge.WritableArray files = com.facebook.react.bridge.Arguments
+                                .createArray();
+                        for (FileIndex.FileEntry f : index.files) {
+                            files.pushMap(FileIndex.toMap(f));
                         }
+                        promise.resolve(files);
+                        return;
                     }
                 }
             }
@@ -246,8 +440,55 @@ public class TorrentModule extends ReactContextBaseJavaModule {
         }
     }
 
+    @ReactMethod
+    public void queryTorrentFiles(String hash, ReadableMap query, Promise promise) {
+        // Paged, filtered file list: { videosOnly, season, offset, limit }
+        try {
+            if (!session.isRunning()) {
+                promise.reject("ENGINE_OFF", "Engine not started");
+                return;
+            }
+            TorrentHandle th = findHandle(session, hash);
+            if (th == null) {
+                promise.reject("NOT_FOUND", "Torrent not found");
+                return;
+            }
+            promise.resolve(fileIndex.query(th, query));
+        } catch (Exception e) {
+            promise.reject("FILES_ERROR", e);
+        }
+    }
+
+    @ReactMethod
+    public void getBestVideoIndex(String hash, Promise promise) {
+        // Precomputed largest video file, -1 while metadata is missing
+        try {
+            TorrentHandle th = session.isRunning() ? findHandle(session, hash) : null;
+            promise.resolve(th != null ? fileIndex.bestVideo(th) : -1);
+        } catch (Exception e) {
+            promise.reject("FILES_ERROR", e);
+        }
+    }
+
+    @ReactMethod
+    public void setWebSeedBase(String baseUrl, Promise promise) {
+        // HTTP fallback source serving /stream/<hash>/<index> with Range support (torrent-gateway).
+        // Pass null/empty to go back to swarm only.
+        String base = (baseUrl == null || baseUrl.isEmpty()) ? null : baseUrl.replaceAll("/+$", "");
+        if (webSeed != null && (base == null || !base.equals(webSeedBase))) {
+            webSeed.detachAll(); // Sources attached under the old base must stop rescuing
+        }
+        webSeedBase = base;
+        promise.resolve(webSeedBase != null);
+    }
+
     @ReactMethod
     public void getStreamUrl(String hash, int fileIndex, Promise promise) {
+        // Hybrid: let urgent pieces be rescued over HTTP if a web seed is configured
+        if (webSeed != null && webSeedBase != null && fileIndex >= 0) {
+            webSeed.attach(hash.toLowerCase(), fileIndex, webSeedBase + "/stream/" + hash + "/" + fileIndex);
+        }
+
         // Strict URL Generation
         String url = "http://127.0.0.1:" + PORT + "/stream/" + hash + "/" + fileIndex + "?t=" + this.authToken;
         promise.resolve(url);
@@ -265,70 +506,53 @@ public class TorrentModule extends ReactContextBaseJavaModule {
             int uploadRate = 0;
 
             if (session.isRunning() && hash != null) {
-                org.libtorrent4j.swig.torrent_handle_vector v = session.swig().get_torrents();
-                long size = v.size();
-                for (long i = 0; i < size; i++) {
-                    org.libtorrent4j.swig.torrent_handle th_swig = v.get((int) i);
-                    if (th_swig.is_valid() && th_swig.info_hash().to_hex().equalsIgnoreCase(hash)) {
-                        TorrentHandle th = new TorrentHandle(th_swig);
-                        org.libtorrent4j.TorrentStatus statusObj = th.status(); // Snapshot
-
-                        state = statusObj.hasMetadata() ? "downloading" : "metaDL";
-                        progress = statusObj.progress();
-
-                        // Real Stats
-                        // Note: libtorrent4j status object might need swig cast for full fields or use
-                        // wrappers
-                        // Checking available methods in standard libtorrent4j wrapper...
-                        // .status() returns TorrentStatus wrapper which has a swig() method
-                        org.libtorrent4j.swig.torrent_status ts = statusObj.swig();
-                        downloadRate = ts.getDownload_payload_rate();
-                        uploadRate = ts.getUpload_payload_rate();
-                        seeds = ts.getList_seeds(); // Or num_seeds depending on version
-                        peers = ts.getList_peers();
-
-                        if (statusObj.hasMetadata()) {
-                            // Smart Ready Check: Do we have the first pieces of the main file?
-                            TorrentInfo ti = th.torrentFile();
-                            if (ti != null) {
-                                org.libtorrent4j.FileStorage fs = ti.files();
-                                int numFiles = fs.numFiles();
-                                long maxSize = -1;
-                                int bestIndex = -1;
-                                for (int j = 0; j < numFiles; j++) {
-                                    if (fs.fileSize(j) > maxSize) {
-                                        String name = fs.fileName(j).toLowerCase();
-                                        if (name.endsWith(".mp4") || name.endsWith(".mkv") || name.endsWith(".avi")) {
-                                            maxSize = fs.fileSize(j);
-                                            bestIndex = j;
-                                        }
+                TorrentHandle th = findHandle(session, hash);
+                if (th != null) {
+                    org.libtorrent4j.TorrentStatus statusObj = th.status(); // Snapshot
+
+                    state = statusObj.hasMetadata() ? "downloading" : "metaDL";
+                    progress = statusObj.progress();
+
+                    // Real Stats
+                    // Note: libtorrent4j status object might need swig cast for full fields or use
+                    // wrappers
+                    // Checking available methods in standard libtorrent4j wrapper...
+                    // .status() returns TorrentStatus wrapper which has a swig() method
+                    org.libtorrent4j.swig.torrent_status ts = statusObj.swig();
+                    downloadRate = ts.getDownload_payload_rate();
+                    uploadRate = ts.getUpload_payload_rate();
+                    seeds = ts.getList_seeds(); // Or num_seeds depending on version
+                    peers = ts.getList_peers();
+
+                    if (statusObj.hasMetadata()) {
+                        // Smart Ready Check: Do we have the first pieces of the main file?
+                        TorrentInfo ti = th.torrentFile();
+                        if (ti != null) {
+                            org.libtorrent4j.FileStorage fs = ti.files();
+                            int bestIndex = fileIndex.bestVideo(th); // Cached, no per-poll scan
+
+                            if (bestIndex != -1) {
+                                long fileOffset = fs.fileOffset(bestIndex);
+                                int pieceSize = ti.pieceLength();
+                                int startPiece = (int) (fileOffset / pieceSize);
+
+                                // Check first 3 pieces (approx 2-12MB buffer depending on piece size)
+                                boolean bufferReady = true;
+                                for (int p = 0; p < 3; p++) {
+                                    if (!th.havePiece(startPiece + p)) {
+                                        bufferReady = false;
+                                        break;
                                     }
                                 }
 
-                                if (bestIndex != -1) {
-                                    long fileOffset = fs.fileOffset(bestIndex);
-                                    int pieceSize = ti.pieceLength();
-                                    int startPiece = (int) (fileOffset / pieceSize);
-
-                                    // Check first 3 pieces (approx 2-12MB buffer depending on piece size)
-                                    boolean bufferReady = true;
-                                    for (int p = 0; p < 3; p++) {
-                                        if (!th.havePiece(startPiece + p)) {
-                                            bufferReady = false;
-                                            break;
-                                        }
-                                    }
-
-                                    if (bufferReady) {
-                                        ready = true;
-                                        state = "ready";
-                                    } else {
-                                        state = "buffering";
-                                    }
+                                if (bufferReady) {
+                                    ready = true;
+                                    state = "ready";
+                                } else {
+                                    state = "buffering";
                                 }
                             }
                         }
-                        break;
                     }
                 }
             }
@@ -358,46 +582,40 @@ public class TorrentModule extends ReactContextBaseJavaModule {
             }
 
             // 1. Find Handle
-            org.libtorrent4j.swig.torrent_handle_vector v = session.swig().get_torrents();
-            long size = v.size();
-            for (long i = 0; i < size; i++) {
-                org.libtorrent4j.swig.torrent_handle th_swig = v.get((int) i);
-                if (th_swig.is_valid() && th_swig.info_hash().to_hex().equalsIgnoreCase(hash)) {
-                    TorrentHandle th = new TorrentHandle(th_swig);
-                    TorrentInfo ti = th.torrentFile();
-
-                    if (ti != null) {
-                        org.libtorrent4j.FileStorage fs = ti.files();
-                        if (fileIndex >= 0 && fileIndex < fs.numFiles()) {
-                            long fileOffset = fs.fileOffset(fileIndex);
-                            int pieceSize = ti.pieceLength();
-
-                            // 2. Map Byte Position to Absolute Torrent Offset
-                            long absoluteStart = fileOffset + (long) bytePosition;
-                            long absoluteEnd = absoluteStart + 10 * 1024 * 1024; // +10MB Read Ahead
-
-                            int startPiece = (int) (absoluteStart / pieceSize);
-                            int endPiece = (int) (absoluteEnd / pieceSize);
-
-                            // 3. Apply The Brain (Priority Scheduling)
-                            // Log.d(TAG, "Brain Pulse: " + startPiece + " -> " + endPiece);
-
-                            int MAX_AHEAD = 32; // Limit pulse aggression
-                            if (endPiece - startPiece > MAX_AHEAD)
-                                endPiece = startPiece + MAX_AHEAD;
-
-                            for (int p = startPiece; p <= endPiece; p++) {
-                                if (p <= startPiece + 3) {
-                                    th.setPieceDeadline(p, 800); // Urgent
-                                } else {
-                                    th.setPieceDeadline(p, 3000); // Steady Prefetch
-                                }
-                            }
-                            promise.resolve(true);
-                            return;
+            TorrentHandle th = findHandle(session, hash);
+            if (th != null) {
+                TorrentInfo ti = th.torrentFile();
+
+                if (ti != null) {
+                    org.libtorrent4j.FileStorage fs = ti.files();
+                    if (fileIndex >= 0 && fileIndex < fs.numFiles()) {
+                        long fileOffset = fs.fileOffset(fileIndex);
+                        int pieceSize = ti.pieceLength();
+
+                        // 2. Map Byte Position to Absolute Torrent Offset
+                        long absoluteStart = fileOffset + (long) bytePosition;
+                        long absoluteEnd = absoluteStart + 10 * 1024 * 1024; // +10MB Read Ahead
+
+                        int startPiece = (int) (absoluteStart / pieceSize);
+                        int endPiece = (int) (absoluteEnd / pieceSize);
+
+                        // 3. Apply The Brain (Priority Scheduling)
+                        // Log.d(TAG, "Brain Pulse: " + startPiece + " -> " + endPiece);
+
+                        int MAX_AHEAD = 32; // Limit pulse aggression
+                        if (endPiece - startPiece > MAX_AHEAD)
+                            endPiece = startPiece + MAX_AHEAD;
+
+                        if (uploadThrottle != null) {
+                            int lastPiece = (int) ((fileOffset + fs.fileSize(fileIndex) - 1) / pieceSize);
+                            uploadThrottle.updatePlayhead(th, startPiece, lastPiece);
                         }
+
+                        // Urgent 800ms head, 3s steady prefetch (debounced while scrubbing)
+                        seekDebouncer.request(hash.toLowerCase() + "/pulse", th, startPiece, endPiece, 3000);
+                        promise.resolve(true);
+                        return;
                     }
-                    break;
                 }
             }
             promise.resolve(false);
@@ -405,4 +623,58 @@ public class TorrentModule extends ReactContextBaseJavaModule {
             promise.reject("PULSE_ERROR", e);
         }
     }
+
+    @ReactMethod
+    public void dumpTrace(Promise promise) {
+        // Writes the stream event ring to a file (decode offline with StreamTrace.main)
+        try {
+            File file = StreamTrace.dumpToFile(reactContext.getCacheDir());
+            promise.resolve(file.getAbsolutePath());
+        } catch (Exception e) {
+            promise.reject("TRACE_ERROR", e);
+        }
+    }
+
+    @ReactMethod
+    public void getEngineMetrics(Promise promise) {
+        try {
+            com.facebook.react.bridge.WritableMap metrics = com.facebook.react.bridge.Arguments.createMap();
+            metrics.putBoolean("running", session.isRunning());
+            if (server != null) {
+                metrics.putDouble("rangeRequests", (double) server.getRangeRequestCount());
+                metrics.putDouble("stalls", (double) server.getStallCount());
+                metrics.putMap("streams", server.getStreamMetrics());
+            }
+            if (uploadThrottle != null) {
+                metrics.putMap("uploadThrottle", uploadThrottle.toMetrics());
+            }
+            if (seekDebouncer != null) {
+                metrics.putMap("seek", seekDebouncer.toMetrics());
+            }
+            if (pieceCache != null) {
+                metrics.putMap("pieceCache", pieceCache.toMetrics());
+            }
+            if (webSeed != null) {
+                metrics.putMap("webSeed", webSeed.toMetrics());
+            }
+            if (prefetcher != null) {
+                metrics.putMap("prefetch", prefetcher.toMetrics());
+            }
+            if (lifecycle != null) {
+                metrics.putMap("lifecycle", lifecycle.toMetrics());
+            }
+            if (fileIndex != null) {
+                metrics.putMap("fileIndex", fileIndex.toMetrics());
+            }
+            if (swarmProbe != null) {
+                metrics.putMap("probe", swarmProbe.toMetrics());
+            }
+            if (peerQuality != null) {
+                metrics.putMap("peers", peerQuality.toMetrics());
+            }
+            promise.resolve(metrics);
+        } catch (Exception e) {
+            promise.reject("METRICS_ERROR", e);
+        }
+    }
 }
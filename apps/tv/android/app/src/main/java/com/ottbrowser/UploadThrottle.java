@@ -0,0 +1,167 @@
+package com.ottbrowser;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.libtorrent4j.SessionManager;
+import org.libtorrent4j.SettingsPack;
+import org.libtorrent4j.TorrentHandle;
+import org.libtorrent4j.swig.settings_pack;
+
+/**
+ * Buffer-health driven upload governor.
+ *
+ * On asymmetric home links a saturated uplink delays our ACKs and piece requests
+ * exactly when the stream is about to stall. Every tick we count the contiguous
+ * pieces we already have ahead of the playhead and pick an upload level:
+ * CRITICAL (choke nearly everything), LOW (trickle) or HEALTHY (unlimited).
+ * Once the player has let go of the torrent (no open reader) or the playhead stops
+ * moving, the focus is dropped and seeding goes back to HEALTHY.
+ */
+public class UploadThrottle {
+    private static final String TAG = "UploadThrottle";
+
+    // Read-ahead target in pieces: the urgent front quarter of the 64-piece deadline
+    // window in schedulePieces, not the whole window
+    static final int TARGET_PIECES = 16;
+
+    static final int LEVEL_CRITICAL = 0;
+    static final int LEVEL_LOW = 1;
+    static final int LEVEL_HEALTHY = 2;
+    private static final String[] LEVEL_NAMES = { "critical", "low", "healthy" };
+
+    // Expert: Keep a trickle alive so tit-for-tat peers don't snub us completely
+    private static final int[] UPLOAD_LIMITS = { 16 * 1024, 96 * 1024, 0 };
+    private static final int[] UNCHOKE_SLOTS = { 1, 2, 8 };
+
+    // No reader this long after the last playhead update: playback stopped
+    private static final long NO_READER_GRACE_MS = 10_000;
+    // Playhead not moving this long (long pause, player left open): stop guarding it
+    private static final long PLAYHEAD_STALE_MS = 2 * 60_000L;
+
+    private final SessionManager session;
+
+    // Playhead (written by HTTP threads / setPulse, read by the ticker)
+    private volatile TorrentHandle focusHandle;
+    private volatile int focusPiece = -1;
+    private volatile int focusLastPiece = -1;
+    private volatile long focusUpdatedMs = 0;
+
+    private int level = -1;
+    private int bufferedPieces = 0;
+    private long levelChanges = 0;
+    private long lastTickMs = 0;
+    private final long[] timeInLevelMs = new long[3];
+
+    public UploadThrottle(SessionManager session) {
+        this.session = session;
+    }
+
+    // Called whenever the player asks for a new position
+    public synchronized void updatePlayhead(TorrentHandle th, int piece, int lastPiece) {
+        this.focusHandle = th;
+        this.focusPiece = piece;
+        this.focusLastPiece = lastPiece;
+        this.focusUpdatedMs = System.currentTimeMillis();
+    }
+
+    public synchronized void tick() {
+        long now = System.currentTimeMillis();
+        if (level >= 0 && lastTickMs > 0) {
+            timeInLevelMs[level] += now - lastTickMs;
+        }
+        lastTickMs = now;
+
+        if (!session.isRunning())
+            return;
+
+        // Runs on scheduleWithFixedDelay: an exception would cancel it for good
+        try {
+            TorrentHandle th = focusHandle;
+            int piece = focusPiece;
+            if (th != null && (!th.isValid() || stopped(th, now))) {
+                focusHandle = null;
+                focusPiece = -1;
+                th = null;
+            }
+            int next;
+            if (th == null || piece < 0) {
+                // Nothing playing: no reason to hold back seeding
+                bufferedPieces = TARGET_PIECES;
+                next = LEVEL_HEALTHY;
+            } else {
+                bufferedPieces = countBuffered(th, piece, focusLastPiece);
+                next = pickLevel(bufferedPieces);
+            }
+
+            if (next != level) {
+                apply(next);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Tick Error", e);
+        }
+    }
+
+    private boolean stopped(TorrentHandle th, long now) {
+        long idle = now - focusUpdatedMs;
+        if (idle > PLAYHEAD_STALE_MS)
+            return true;
+        return idle > NO_READER_GRACE_MS && !TorrentModule.isStreaming(th.swig().info_hash().to_hex());
+    }
+
+    private int countBuffered(TorrentHandle th, int startPiece, int lastPiece) {
+        int buffered = 0;
+        for (int p = startPiece; p < startPiece + TARGET_PIECES; p++) {
+            if (lastPiece >= 0 && p > lastPiece) {
+                // End of file counts as fully buffered
+                return TARGET_PIECES;
+            }
+            if (!th.havePiece(p))
+                break;
+            buffered++;
+        }
+        return buffered;
+    }
+
+    // Hysteresis: tighten immediately, relax only once clearly past the threshold
+    private int pickLevel(int buffered) {
+        if (buffered < TARGET_PIECES / 4)
+            return LEVEL_CRITICAL;
+        if (buffered < TARGET_PIECES / 2)
+            return level == LEVEL_CRITICAL ? LEVEL_CRITICAL : LEVEL_LOW;
+        if (buffered < TARGET_PIECES)
+            return level == LEVEL_HEALTHY ? LEVEL_HEALTHY : LEVEL_LOW;
+        return LEVEL_HEALTHY;
+    }
+
+    private void apply(int next) {
+        try {
+            SettingsPack sp = new SettingsPack().uploadRateLimit(UPLOAD_LIMITS[next]);
+            sp.swig().set_int(settings_pack.int_types.unchoke_slots_limit.swigValue(), UNCHOKE_SLOTS[next]);
+            session.applySettings(sp);
+            if (level >= 0)
+                levelChanges++;
+            level = next;
+            Log.d(TAG, "Upload level -> " + LEVEL_NAMES[next] + " (buffered " + bufferedPieces + "/" + TARGET_PIECES
+                    + ")");
+        } catch (Exception e) {
+            Log.e(TAG, "Apply Error", e);
+        }
+    }
+
+    public synchronized WritableMap toMetrics() {
+        WritableMap map = Arguments.createMap();
+        map.putString("level", level >= 0 ? LEVEL_NAMES[level] : "none");
+        map.putInt("uploadLimit", level >= 0 ? UPLOAD_LIMITS[level] : 0);
+        map.putInt("unchokeSlots", level >= 0 ? UNCHOKE_SLOTS[level] : 0);
+        map.putInt("bufferedPieces", bufferedPieces);
+        map.putInt("targetPieces", TARGET_PIECES);
+        map.putDouble("levelChanges", (double) levelChanges);
+        map.putDouble("msCritical", (double) timeInLevelMs[LEVEL_CRITICAL]);
+        map.putDouble("msLow", (double) timeInLevelMs[LEVEL_LOW]);
+        map.putDouble("msHealthy", (double) timeInLevelMs[LEVEL_HEALTHY]);
+        return map;
+    }
+}
@@ -0,0 +1,259 @@
+package com.ottbrowser;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.libtorrent4j.SessionManager;
+import org.libtorrent4j.Sha1Hash;
+import org.libtorrent4j.TorrentHandle;
+import org.libtorrent4j.TorrentInfo;
+import org.libtorrent4j.swig.add_piece_flags_t;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP rescue for deadline pieces ("hybrid web seed").
+ *
+ * The torrent-gateway serves /stream/:hash/:fileIndex with Range support, i.e. one
+ * URL per file, which is not the BEP 19 layout libtorrent's own url seeds expect.
+ * So we do it by hand: when an urgent piece ahead of the playhead is still missing
+ * after its deadline, fetch its byte range over HTTP, verify it against the piece
+ * hash and hand it to libtorrent with add_piece.
+ */
+public class WebSeed {
+    private static final String TAG = "WebSeed";
+
+    // Same urgent head as the scheduler (800ms deadline)
+    private static final int URGENT_PIECES = 4;
+    private static final long AT_RISK_MS = 800;
+    private static final int MAX_INFLIGHT = 2;
+    private static final int TIMEOUT_MS = 8000;
+
+    private static class Source {
+        final String hash;
+        final int fileIndex;
+        final String url;
+
+        Source(String hash, int fileIndex, String url) {
+            this.hash = hash;
+            this.fileIndex = fileIndex;
+            this.url = url;
+        }
+    }
+
+    private final SessionManager session;
+    private final ExecutorService fetchers = Executors.newFixedThreadPool(MAX_INFLIGHT);
+
+    private final Map<String, Source> sources = new HashMap<>(); // hash -> source
+    private final Map<String, Long> missingSince = new HashMap<>(); // "hash:piece" -> first seen missing
+    private final Set<String> inflight = new HashSet<>();
+
+    private volatile String focusHash;
+    private volatile TorrentHandle focusHandle;
+    private volatile int focusPiece = -1;
+
+    // Metrics
+    private long httpBytes = 0;
+    private long httpPieces = 0;
+    private long hashFailures = 0;
+    private long httpErrors = 0;
+
+    public WebSeed(SessionManager session) {
+        this.session = session;
+    }
+
+    public synchronized void attach(String hash, int fileIndex, String url) {
+        sources.put(hash, new Source(hash, fileIndex, url));
+        Log.d(TAG, "Web seed attached for " + hash + "/" + fileIndex);
+    }
+
+    // Torrent left the session (parked / dropped); getStreamUrl attaches it again
+    public synchronized void detach(String hash) {
+        sources.remove(hash);
+        Iterator<String> it = missingSince.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().startsWith(hash + ":"))
+                it.remove();
+        }
+    }
+
+    // Base URL unset or changed: nothing attached so far may be fetched again
+    public synchronized void detachAll() {
+        sources.clear();
+        missingSince.clear();
+    }
+
+    public void setFocus(String hash, TorrentHandle th, int piece) {
+        this.focusHash = hash;
+        this.focusHandle = th;
+        this.focusPiece = piece;
+    }
+
+    public void tick() {
+        if (!session.isRunning())
+            return;
+        // Runs on scheduleWithFixedDelay: an exception would end HTTP rescue for good
+        try {
+            rescueAtRisk();
+        } catch (Exception e) {
+            Log.e(TAG, "Tick Error", e);
+        }
+    }
+
+    private void rescueAtRisk() {
+        String hash = focusHash;
+        TorrentHandle th = focusHandle;
+        int start = focusPiece;
+        if (hash == null || th == null || start < 0 || !th.isValid())
+            return;
+
+        Source source;
+        synchronized (this) {
+            source = sources.get(hash);
+        }
+        if (source == null)
+            return;
+
+        TorrentInfo ti = th.torrentFile();
+        if (ti == null)
+            return;
+
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (missingSince.size() > 256)
+                missingSince.clear(); // Stale positions from earlier seeks
+        }
+        for (int p = start; p < start + URGENT_PIECES && p < ti.numPieces(); p++) {
+            String key = hash + ":" + p;
+            if (th.havePiece(p)) {
+                synchronized (this) {
+                    missingSince.remove(key);
+                }
+                continue;
+            }
+            synchronized (this) {
+                Long since = missingSince.get(key);
+                if (since == null) {
+                    missingSince.put(key, now);
+                    continue;
+                }
+                if (now - since < AT_RISK_MS || inflight.contains(key) || inflight.size() >= MAX_INFLIGHT)
+                    continue;
+                inflight.add(key);
+            }
+            final int piece = p;
+            fetchers.execute(() -> rescue(source, th, ti, piece, key));
+        }
+    }
+
+    private void rescue(Source source, TorrentHandle th, TorrentInfo ti, int piece, String key) {
+        try {
+            if (th.havePiece(piece))
+                return; // Swarm won the race
+
+            long fileOffset = ti.files().fileOffset(source.fileIndex);
+            long fileSize = ti.files().fileSize(source.fileIndex);
+            long start = (long) piece * ti.pieceLength() - fileOffset;
+            int size = ti.pieceSize(piece);
+            if (start < 0 || start + size > fileSize)
+                return; // Piece straddles a file boundary, the per-file endpoint can't serve it
+
+            byte[] data = fetchRange(source.url, start, size);
+            if (data == null) {
+                synchronized (this) {
+                    httpErrors++;
+                }
+                return;
+            }
+
+            Sha1Hash expected = ti.hashForPiece(piece);
+            if (expected == null || !verify(expected.toBytes(), data)) {
+                // Gateway may still be downloading that region itself
+                synchronized (this) {
+                    hashFailures++;
+                }
+                return;
+            }
+
+            th.addPiece(piece, data, new add_piece_flags_t());
+            synchronized (this) {
+                httpBytes += data.length;
+                httpPieces++;
+            }
+            Log.d(TAG, "Rescued piece " + piece + " over HTTP");
+        } catch (Exception e) {
+            Log.e(TAG, "Rescue Error", e);
+        } finally {
+            synchronized (this) {
+                inflight.remove(key);
+                missingSince.remove(key);
+            }
+        }
+    }
+
+    // Exactly size bytes at start, or null unless the server answers 206 in full
+    static byte[] fetchRange(String url, long start, int size) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            conn.setConnectTimeout(TIMEOUT_MS);
+            conn.setReadTimeout(TIMEOUT_MS);
+            conn.setRequestProperty("Range", "bytes=" + start + "-" + (start + size - 1));
+            if (conn.getResponseCode() != HttpURLConnection.HTTP_PARTIAL)
+                return null;
+
+            byte[] data = new byte[size];
+            int read = 0;
+            InputStream in = conn.getInputStream();
+            try {
+                while (read < size) {
+                    int n = in.read(data, read, size - read);
+                    if (n < 0)
+                        return null;
+                    read += n;
+                }
+            } finally {
+                in.close();
+            }
+            return data;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    static boolean verify(byte[] expectedSha1, byte[] data) throws Exception {
+        byte[] actual = MessageDigest.getInstance("SHA-1").digest(data);
+        return Arrays.equals(expectedSha1, actual);
+    }
+
+    public void shutdown() {
+        fetchers.shutdownNow();
+    }
+
+    public synchronized WritableMap toMetrics() {
+        WritableMap map = Arguments.createMap();
+        map.putInt("sources", sources.size());
+        TorrentHandle th = focusHandle;
+        if (th != null && th.isValid()) {
+            map.putDouble("swarmBytes", (double) th.status().swig().getTotal_payload_download());
+        }
+        map.putDouble("httpBytes", (double) httpBytes);
+        map.putDouble("httpPieces", (double) httpPieces);
+        map.putDouble("hashFailures", (double) hashFailures);
+        map.putDouble("httpErrors", (double) httpErrors);
+        return map;
+    }
+}
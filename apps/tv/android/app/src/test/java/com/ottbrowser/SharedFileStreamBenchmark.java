@@ -0,0 +1,79 @@
+package com.ottbrowser;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Mapped vs positional read throughput of SharedFileStream, in player-sized chunks
+ * over a warm page cache. Not a unit test (timings depend on the machine); run it
+ * by hand on the test classpath:
+ *
+ *   java -cp <test classes>:<app classes> com.ottbrowser.SharedFileStreamBenchmark [passes]
+ *
+ * Prints MB/s for both paths and the mapped/positional ratio.
+ */
+public class SharedFileStreamBenchmark {
+    private static final int PIECE = 256 * 1024;
+    private static final int LENGTH = 48 * 1024 * 1024; // Six regions, under the global cap
+    private static final int[] CHUNKS = { 16 * 1024, 64 * 1024, 256 * 1024 };
+
+    public static void main(String[] args) throws IOException {
+        int passes = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        byte[] data = new byte[LENGTH];
+        new Random(7).nextBytes(data);
+        File path = File.createTempFile("sfs-bench", ".bin");
+        FileOutputStream out = new FileOutputStream(path);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+
+        SharedFileStream stream = new SharedFileStream(path, LENGTH, 0, PIECE);
+        SharedFileStream.Reader reader = stream.open(0, true); // Keeps the mappings live
+        SharedFileStream.PieceSource all = p -> true;
+        byte[] buf = new byte[CHUNKS[CHUNKS.length - 1]];
+        try {
+            for (int chunk : CHUNKS) {
+                // Warm up both paths (page cache, JIT, mappings)
+                pass(stream, all, buf, chunk, false);
+                pass(stream, all, buf, chunk, true);
+
+                long t0 = System.nanoTime();
+                for (int i = 0; i < passes; i++)
+                    pass(stream, all, buf, chunk, false);
+                long positionalNs = System.nanoTime() - t0;
+                t0 = System.nanoTime();
+                for (int i = 0; i < passes; i++)
+                    pass(stream, all, buf, chunk, true);
+                long mappedNs = System.nanoTime() - t0;
+
+                double mb = (double) LENGTH * passes / (1024 * 1024);
+                System.out.printf("%4d KB chunks: positional %6.0f MB/s, mapped %6.0f MB/s (x%.2f)%n",
+                        chunk / 1024, mb * 1e9 / positionalNs, mb * 1e9 / mappedNs,
+                        (double) positionalNs / mappedNs);
+            }
+        } finally {
+            stream.close(reader);
+            stream.release();
+            path.delete();
+        }
+    }
+
+    private static void pass(SharedFileStream stream, SharedFileStream.PieceSource pieces, byte[] buf,
+            int chunk, boolean mapped) throws IOException {
+        long position = 0;
+        while (position < LENGTH) {
+            int len = (int) Math.min(chunk, LENGTH - position);
+            int n = mapped ? stream.readMapped(pieces, position, buf, 0, len) : -1;
+            if (n < 0)
+                n = stream.read(position, buf, 0, len);
+            if (n <= 0)
+                throw new IOException("Short read at " + position);
+            position += n;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.ottbrowser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Mapped reads against positional reads of the same file: region boundaries, the
+ * file tail, incomplete regions, and the global mapping budget. Throughput is in
+ * SharedFileStreamBenchmark.
+ */
+public class SharedFileStreamTest {
+    private static final int PIECE = 256 * 1024;
+    private static final int REGION = 8 * 1024 * 1024;
+    // File starts mid-piece inside the torrent, like a second file
+    private static final long FILE_OFFSET = 3L * PIECE + 1234;
+    private static final int LENGTH = 2 * REGION + 12345; // Short last region
+    private static final int CHUNK = 16 * 1024;
+
+    private File path;
+    private byte[] data;
+    private SharedFileStream stream;
+    private final Set<Integer> missing = new HashSet<>();
+    private final SharedFileStream.PieceSource pieces = p -> !missing.contains(p);
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[LENGTH];
+        new Random(7).nextBytes(data);
+        path = File.createTempFile("sfs", ".bin");
+        FileOutputStream out = new FileOutputStream(path);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        stream = new SharedFileStream(path, LENGTH, FILE_OFFSET, PIECE);
+    }
+
+    @After
+    public void tearDown() {
+        stream.release();
+        path.delete();
+    }
+
+    @Test
+    public void mappedMatchesFileAcrossRegionBoundaries() throws IOException {
+        // Odd chunk size so reads straddle every region boundary
+        byte[] mapped = readAll(true, 100_003);
+        assertArrayEquals(data, mapped);
+        assertArrayEquals(data, readAll(false, 100_003));
+        assertEquals(3, stream.mappedRegionCount());
+    }
+
+    @Test
+    public void mappedReadStopsAtRegionEnd() {
+        byte[] buf = new byte[CHUNK];
+        int n = stream.readMapped(pieces, REGION - 100, buf, 0, CHUNK);
+        assertEquals(100, n);
+        assertArrayEquals(Arrays.copyOfRange(data, REGION - 100, REGION), Arrays.copyOf(buf, n));
+    }
+
+    @Test
+    public void mappedReadAtFileTail() {
+        byte[] buf = new byte[CHUNK];
+        int n = stream.readMapped(pieces, LENGTH - 10, buf, 0, CHUNK);
+        assertEquals(10, n);
+        assertArrayEquals(Arrays.copyOfRange(data, LENGTH - 10, LENGTH), Arrays.copyOf(buf, n));
+        assertEquals(-1, stream.readMapped(pieces, LENGTH, buf, 0, CHUNK));
+    }
+
+    @Test
+    public void incompleteRegionFallsBack() throws IOException {
+        // A piece in the middle of region 1
+        missing.add(stream.pieceOf(REGION + REGION / 2));
+        byte[] buf = new byte[CHUNK];
+        assertEquals(-1, stream.readMapped(pieces, REGION, buf, 0, CHUNK));
+        assertEquals(CHUNK, stream.readMapped(pieces, 0, buf, 0, CHUNK));
+        assertEquals(CHUNK, stream.read(REGION, buf, 0, CHUNK));
+        assertArrayEquals(Arrays.copyOfRange(data, REGION, REGION + CHUNK), buf);
+        assertEquals(1, stream.mappedRegionCount());
+    }
+
+    @Test
+    public void releasedStreamDoesNotReopen() {
+        stream.release();
+        byte[] buf = new byte[CHUNK];
+        assertEquals(-1, stream.readMapped(pieces, 0, buf, 0, CHUNK));
+        try {
+            stream.read(0, buf, 0, CHUNK);
+            fail("read after release");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void mappingsReleasedOnceFileIsIdle() {
+        long before = SharedFileStream.getMappedBytes();
+        SharedFileStream.Reader reader = stream.open(0, true);
+        byte[] buf = new byte[CHUNK];
+        assertEquals(CHUNK, stream.readMapped(pieces, 0, buf, 0, CHUNK));
+        stream.close(reader);
+        assertEquals(1, stream.mappedRegionCount()); // Lingers for a reconnect
+
+        SharedFileStream.releaseIdle(0);
+        assertEquals(0, stream.mappedRegionCount());
+        assertEquals(before, SharedFileStream.getMappedBytes());
+    }
+
+    @Test
+    public void idleFilesGiveUpTheirBudget() {
+        // Three closed titles nearly fill the global cap
+        List<SharedFileStream> idle = new ArrayList<>();
+        byte[] buf = new byte[CHUNK];
+        for (int i = 0; i < 3; i++) {
+            SharedFileStream other = new SharedFileStream(path, LENGTH, FILE_OFFSET, PIECE);
+            idle.add(other);
+            for (long pos = 0; pos < LENGTH; pos += REGION)
+                assertTrue(other.readMapped(pieces, pos, buf, 0, CHUNK) > 0);
+        }
+        try {
+            SharedFileStream.Reader reader = stream.open(0, true);
+            for (long pos = 0; pos < LENGTH; pos += REGION)
+                assertTrue(stream.readMapped(pieces, pos, buf, 0, CHUNK) > 0);
+            assertEquals(3, stream.mappedRegionCount());
+            for (SharedFileStream other : idle)
+                assertEquals(0, other.mappedRegionCount());
+            stream.close(reader);
+        } finally {
+            for (SharedFileStream other : idle)
+                other.release();
+        }
+    }
+
+    private byte[] readAll(boolean mapped, int chunk) throws IOException {
+        byte[] out = new byte[LENGTH];
+        long position = 0;
+        while (position < LENGTH) {
+            int len = (int) Math.min(chunk, LENGTH - position);
+            int n = mapped ? stream.readMapped(pieces, position, out, (int) position, len) : -1;
+            if (n < 0)
+                n = stream.read(position, out, (int) position, len);
+            if (n <= 0)
+                throw new IOException("Short read at " + position);
+            position += n;
+        }
+        return out;
+    }
+}
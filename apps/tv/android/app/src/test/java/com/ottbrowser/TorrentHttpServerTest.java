@@ -0,0 +1,47 @@
+package com.ottbrowser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Range / If-Range handling of the stream endpoint (RFC 7233).
+ */
+public class TorrentHttpServerTest {
+    private static final long LENGTH = 1000;
+    private static final String ETAG = "\"abc-0\"";
+
+    @Test
+    public void parsesRangeForms() {
+        assertArrayEquals(new long[] { 100, 199 }, TorrentHttpServer.parseRange("bytes=100-199", LENGTH));
+        assertArrayEquals(new long[] { 100, 999 }, TorrentHttpServer.parseRange("bytes=100-", LENGTH));
+        assertArrayEquals(new long[] { 900, 999 }, TorrentHttpServer.parseRange("bytes=-100", LENGTH));
+        assertArrayEquals(new long[] { 900, 999 }, TorrentHttpServer.parseRange("bytes=900-5000", LENGTH));
+    }
+
+    @Test
+    public void ignoresInvalidRange() {
+        // Last byte before the first: syntactically invalid, serve the whole file
+        assertNull(TorrentHttpServer.parseRange("bytes=500-100", LENGTH));
+        assertNull(TorrentHttpServer.parseRange("bytes=abc-", LENGTH));
+        assertNull(TorrentHttpServer.parseRange("items=0-10", LENGTH));
+    }
+
+    @Test
+    public void rejectsUnsatisfiableRange() {
+        assertArrayEquals(new long[] { -1, -1 }, TorrentHttpServer.parseRange("bytes=1000-", LENGTH));
+        assertArrayEquals(new long[] { -1, -1 }, TorrentHttpServer.parseRange("bytes=-0", LENGTH));
+    }
+
+    @Test
+    public void ifRangeUsesStrongComparison() {
+        assertTrue(TorrentHttpServer.ifRangeMatches(ETAG, ETAG));
+        assertTrue(TorrentHttpServer.ifRangeMatches(" " + ETAG + " ", ETAG));
+        assertFalse(TorrentHttpServer.ifRangeMatches("W/" + ETAG, ETAG));
+        assertFalse(TorrentHttpServer.ifRangeMatches("\"other\"", ETAG));
+        assertFalse(TorrentHttpServer.ifRangeMatches("Wed, 21 Oct 2015 07:28:00 GMT", ETAG));
+    }
+}
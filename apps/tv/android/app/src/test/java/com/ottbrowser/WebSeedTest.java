@@ -0,0 +1,115 @@
+package com.ottbrowser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * WebSeed range fetch + piece verification against a local stand-in for the
+ * torrent-gateway (/stream/<hash>/<index> with Range support).
+ */
+public class WebSeedTest {
+    private static final int PIECE = 16 * 1024;
+    private static final int PIECES = 4;
+    private static final int CORRUPT_PIECE = 2;
+
+    private HttpServer server;
+    private byte[] file;
+    private String base;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new byte[PIECE * PIECES - 1000]; // Short last piece
+        new Random(42).nextBytes(file);
+
+        // Serves the file, except that piece CORRUPT_PIECE has one flipped byte
+        final byte[] served = file.clone();
+        served[CORRUPT_PIECE * PIECE + 7] ^= 1;
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/stream/abc/0", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            long[] r = TorrentHttpServer.parseRange(range, served.length);
+            if (r == null || r[0] < 0) {
+                exchange.sendResponseHeaders(200, served.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(served);
+                out.close();
+                return;
+            }
+            int len = (int) (r[1] - r[0] + 1);
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + r[0] + "-" + r[1] + "/" + served.length);
+            exchange.sendResponseHeaders(206, len);
+            OutputStream out = exchange.getResponseBody();
+            out.write(served, (int) r[0], len);
+            out.close();
+        });
+        // Ignores Range, like a misconfigured proxy
+        server.createContext("/stream/abc/1", exchange -> {
+            exchange.sendResponseHeaders(200, file.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(file);
+            out.close();
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private byte[] piece(int index) {
+        int start = index * PIECE;
+        return Arrays.copyOfRange(file, start, Math.min(file.length, start + PIECE));
+    }
+
+    private static byte[] sha1(byte[] data) throws Exception {
+        return MessageDigest.getInstance("SHA-1").digest(data);
+    }
+
+    @Test
+    public void fetchesAndVerifiesPiece() throws Exception {
+        byte[] data = WebSeed.fetchRange(base + "/stream/abc/0", PIECE, PIECE);
+        assertNotNull(data);
+        assertArrayEquals(piece(1), data);
+        assertTrue(WebSeed.verify(sha1(piece(1)), data));
+    }
+
+    @Test
+    public void fetchesShortLastPiece() throws Exception {
+        int last = PIECES - 1;
+        int size = file.length - last * PIECE;
+        byte[] data = WebSeed.fetchRange(base + "/stream/abc/0", (long) last * PIECE, size);
+        assertNotNull(data);
+        assertTrue(WebSeed.verify(sha1(piece(last)), data));
+    }
+
+    @Test
+    public void rejectsPieceThatFailsHash() throws Exception {
+        byte[] data = WebSeed.fetchRange(base + "/stream/abc/0", (long) CORRUPT_PIECE * PIECE, PIECE);
+        assertNotNull(data);
+        assertFalse(WebSeed.verify(sha1(piece(CORRUPT_PIECE)), data));
+    }
+
+    @Test
+    public void ignoresServerWithoutRangeSupport() throws Exception {
+        assertNull(WebSeed.fetchRange(base + "/stream/abc/1", PIECE, PIECE));
+    }
+}
@@ -26,6 +26,7 @@ import { Focusable } from '../components/Focusable';
 import { Swimlane } from '../components/Swimlane';
 import { MovieDetailsModal } from '../components/MovieDetailsModal';
 import { RootStackParamList } from '../../App';
+import GatewayService from '../services/GatewayService';
 
 type HomeScreenNav = StackNavigationProp<RootStackParamList, 'Home'>;
 
@@ -178,6 +179,19 @@ export const HomeScreen: React.FC<{ navigation: HomeScreenNav }> = ({ navigation
         }
     };
 
+    // Warm torrent metadata for the title most likely to be played next
+    useEffect(() => {
+        if (heroItems.length > 0) {
+            GatewayService.prefetch(heroItems.slice(0, 1));
+        }
+    }, [heroItems]);
+
+    useEffect(() => {
+        if (modalVisible && selectedItem) {
+            GatewayService.prefetch([selectedItem]);
+        }
+    }, [modalVisible, selectedItem]);
+
     const handleHeroPlay = (item: ContentItem) => {
         navigation.navigate('Player', { item });
     };
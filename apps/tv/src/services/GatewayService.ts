@@ -11,8 +11,27 @@ export interface StreamSession {
     title: string;
 }
 
+// INJECT TRACKERS (Iron Link - Verified 2025)
+const TRACKERS = [
+    "udp://tracker.opentrackr.org:1337/announce",
+    "udp://bt.t-ru.org:2710/announce",           // RuTracker official
+    "udp://open.stealth.si:80/announce",
+    "udp://tracker.torrent.eu.org:451/announce",
+    "udp://exodus.desync.com:6969/announce",
+    "udp://tracker.moeking.me:6969/announce",
+    "http://retracker.local/announce",
+    "http://tracker.gbitt.info:80/announce",
+    "udp://explodie.org:6969/announce",
+    "udp://tracker.tiny-vps.com:6969/announce"
+];
+
+// Max titles warmed at once (native side caps this too)
+const PREFETCH_BUDGET = 2;
+
 class GatewayService {
     private engineStarted = false;
+    // Magnets already resolved by the VPS, keyed by "<type>:<tmdbId>"
+    private magnetCache = new Map<string, any>();
 
     constructor() {
         this.initEngine();
@@ -34,47 +53,11 @@ class GatewayService {
         if (!this.engineStarted) await this.initEngine();
 
         try {
-            // Ask VPS for Magnet (It handles searching via Proxy Swarm)
-            // Enhanced endpoint to support type explicitly
-            const response = await axios.get(`${WORKER_URL}/play/${tmdbId}?mode=native&type=${mediaType}`, {
-                timeout: 30000
-            });
-
-            console.log('[Gateway] Response Keys:', Object.keys(response.data));
-
-            // Server might return 'magnet' or 'debug_magnet' depending on version
-            let magnet = response.data.magnet || response.data.debug_magnet;
+            const data = await this.lookupMagnet(tmdbId, mediaType);
+            const magnet = this.withTrackers(data.magnet || data.debug_magnet);
 
             if (magnet) {
-                console.log('[Gateway] Got magnet from VPS:', response.data.fs_name);
-
-                // INJECT TRACKERS (Iron Link - Verified 2025)
-                const TRACKERS = [
-                    "udp://tracker.opentrackr.org:1337/announce",
-                    "udp://bt.t-ru.org:2710/announce",           // RuTracker official
-                    "udp://open.stealth.si:80/announce",
-                    "udp://tracker.torrent.eu.org:451/announce",
-                    "udp://exodus.desync.com:6969/announce",
-                    "udp://tracker.moeking.me:6969/announce",
-                    "http://retracker.local/announce",
-                    "http://tracker.gbitt.info:80/announce",
-                    "udp://explodie.org:6969/announce",
-                    "udp://tracker.tiny-vps.com:6969/announce"
-                ];
-
-                const trString = TRACKERS.map(t => `&tr=${encodeURIComponent(t)}`).join("");
-
-                // Ensure we append correctly depending on if it has query params or not
-                if (magnet.includes('?')) {
-                    magnet += trString;
-                } else {
-                    // If it's just a hash or weird format, we might need to reconstruct, 
-                    // but VPS normally returns full magnet. 
-                    // Safest fallback:
-                    if (magnet.startsWith('magnet:?')) {
-                        magnet += trString;
-                    }
-                }
+                console.log('[Gateway] Got magnet from VPS:', data.fs_name);
 
                 console.log('[Gateway] Final Magnet for Engine:', magnet.substring(0, 100) + '...');
 
@@ -85,30 +68,14 @@ class GatewayService {
                 // Wait for Metadata
                 await this.waitForReady(hash);
 
-                // Smart File Selection (Largest Video File)
-                const files = await TorrentModule.getTorrentFiles(hash);
-                let bestIndex = -1;
-                let maxSize = -1;
-
-                if (files && Array.isArray(files)) {
-                    files.forEach((file: any) => {
-                        const name = file.name.toLowerCase();
-                        // Check for video extensions
-                        if (name.endsWith('.mp4') || name.endsWith('.mkv') || name.endsWith('.avi')) {
-                            if (file.size > maxSize) {
-                                maxSize = file.size;
-                                bestIndex = file.index;
-                            }
-                        }
-                    });
-                }
+                // Smart File Selection (Largest Video File, precomputed natively when metadata arrived)
+                const bestIndex: number = await TorrentModule.getBestVideoIndex(hash);
 
                 if (bestIndex === -1) {
                     // Fallback: If no files found via API (rare), try -1 (auto)
                     console.warn('[Gateway] No video files found in metadata, trying auto-select');
-                    bestIndex = -1;
                 } else {
-                    console.log(`[Gateway] Selected File Index: ${bestIndex} (Size: ${(maxSize / 1024 / 1024).toFixed(2)} MB)`);
+                    console.log(`[Gateway] Selected File Index: ${bestIndex}`);
                 }
 
                 // Get Stream URL for specific file
@@ -118,12 +85,12 @@ class GatewayService {
                 return {
                     sessionId: hash,
                     streamUrl: url,
-                    posterUrl: response.data.posterUrl || '',
+                    posterUrl: data.posterUrl || '',
                     title: title
                 };
             }
 
-            throw new Error(response.data.error || 'No sources found');
+            throw new Error(data.error || 'No sources found');
 
         } catch (e: any) {
             console.error('[Gateway] Resolution failed', e.message);
@@ -135,6 +102,59 @@ class GatewayService {
         }
     }
 
+    /**
+     * Warm up torrent metadata for titles the user is likely to open (hero / details).
+     * Fire-and-forget: failures are only logged.
+     */
+    public async prefetch(items: { id: number; media_type: string }[]): Promise<void> {
+        try {
+            if (!this.engineStarted) return;
+            const magnets: string[] = [];
+            for (const item of items.slice(0, PREFETCH_BUDGET)) {
+                const data = await this.lookupMagnet(item.id, item.media_type);
+                const magnet = this.withTrackers(data.magnet || data.debug_magnet);
+                if (magnet) magnets.push(magnet);
+            }
+            if (magnets.length > 0) {
+                const warmed = await TorrentModule.prefetchMetadata(magnets, PREFETCH_BUDGET);
+                console.log(`[Gateway] Prefetching metadata for ${warmed} title(s)`);
+            }
+        } catch (e: any) {
+            console.warn('[Gateway] Prefetch skipped', e.message);
+        }
+    }
+
+    // Ask VPS for Magnet (It handles searching via Proxy Swarm)
+    private async lookupMagnet(tmdbId: number, mediaType: string): Promise<any> {
+        const key = `${mediaType}:${tmdbId}`;
+        const cached = this.magnetCache.get(key);
+        if (cached) return cached;
+
+        // Enhanced endpoint to support type explicitly
+        const response = await axios.get(`${WORKER_URL}/play/${tmdbId}?mode=native&type=${mediaType}`, {
+            timeout: 30000
+        });
+
+        console.log('[Gateway] Response Keys:', Object.keys(response.data));
+        // Server might return 'magnet' or 'debug_magnet' depending on version
+        if (response.data.magnet || response.data.debug_magnet) {
+            this.magnetCache.set(key, response.data);
+        }
+        return response.data;
+    }
+
+    private withTrackers(magnet: string | undefined): string | undefined {
+        if (!magnet) return magnet;
+        const trString = TRACKERS.map(t => `&tr=${encodeURIComponent(t)}`).join("");
+
+        // Ensure we append correctly depending on if it has query params or not
+        // (If it's just a hash or weird format we leave it, VPS normally returns full magnet)
+        if (magnet.includes('?')) {
+            return magnet + trString;
+        }
+        return magnet;
+    }
+
     private async waitForReady(hash: string): Promise<void> {
         let retries = 0;
         const maxRetries = 60; // 60s